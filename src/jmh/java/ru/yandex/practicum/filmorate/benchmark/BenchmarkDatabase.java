@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.github.javafaker.Faker;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.base.QueryFanOut;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.storage.friend.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserRepository;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Изолированная H2-база для бенчмарков, заполненная синтетическими данными.
+ * На каждые {@code scale} фильмов создаётся столько же пользователей,
+ * по {@link #LIKES_PER_USER} лайков и {@link #FRIENDS_PER_USER} друзей на пользователя.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int LIKES_PER_USER = 10;
+    static final int FRIENDS_PER_USER = 20;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int GENRE_COUNT = 6;
+    private static final int MPA_COUNT = 5;
+
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcOperations jdbc;
+    private final QueryFanOut fanOut = new QueryFanOut(Executors.newVirtualThreadPerTaskExecutor(),
+            Duration.ofSeconds(30));
+    private final int scale;
+
+    private BenchmarkDatabase(int scale) {
+        this.scale = scale;
+        this.dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(Runtime.getRuntime().availableProcessors() + 1);
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    static BenchmarkDatabase create(int scale) {
+        BenchmarkDatabase database = new BenchmarkDatabase(scale);
+        database.initSchema();
+        database.seed(new Random(42));
+        return database;
+    }
+
+    int scale() {
+        return scale;
+    }
+
+    NamedParameterJdbcOperations jdbc() {
+        return jdbc;
+    }
+
+    JdbcGenreRepository genreRepository() {
+        return new JdbcGenreRepository(jdbc, new GenreRowMapper());
+    }
+
+    JdbcFilmRepository filmRepository() {
+        return new JdbcFilmRepository(jdbc, new FilmRowMapper(), genreRepository(), fanOut);
+    }
+
+    JdbcFriendRepository friendRepository() {
+        return new JdbcFriendRepository(jdbc, new UserRowMapper());
+    }
+
+    JdbcUserRepository userRepository() {
+        return new JdbcUserRepository(jdbc, new UserRowMapper());
+    }
+
+    FriendGraph friendGraph() {
+        FriendGraph friendGraph = new FriendGraph(friendRepository());
+        friendGraph.rebuild();
+        return friendGraph;
+    }
+
+    @Override
+    public void close() {
+        fanOut.close();
+        dataSource.close();
+    }
+
+    private void initSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema-h2.sql"),
+                new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+    }
+
+    private void seed(Random random) {
+        Faker faker = new Faker(Locale.ENGLISH, random);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+
+        List<Object[]> users = new ArrayList<>(scale);
+        for (int i = 1; i <= scale; i++) {
+            users.add(new Object[]{(long) i, "user" + i + "@example.com", "user" + i, faker.name().fullName(),
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000)))});
+        }
+        batchInsert(template, "INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users);
+
+        List<Object[]> films = new ArrayList<>(scale);
+        List<Object[]> filmGenres = new ArrayList<>();
+        for (int i = 1; i <= scale; i++) {
+            films.add(new Object[]{(long) i, faker.book().title(), faker.lorem().sentence(12),
+                    Date.valueOf(LocalDate.of(1930, 1, 1).plusDays(random.nextInt(33_000))),
+                    60 + random.nextInt(120), 1 + random.nextInt(MPA_COUNT)});
+            int first = 1 + random.nextInt(GENRE_COUNT);
+            filmGenres.add(new Object[]{(long) i, first});
+            if (random.nextBoolean()) {
+                filmGenres.add(new Object[]{(long) i, first % GENRE_COUNT + 1});
+            }
+        }
+        batchInsert(template, """
+                INSERT INTO films (film_id, name, description, release_date, duration, mpa_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, films);
+        batchInsert(template, "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", filmGenres);
+
+        batchInsert(template, "INSERT INTO likes (film_id, user_id) VALUES (?, ?)",
+                randomPairs(random, Math.min(LIKES_PER_USER, scale), true));
+        batchInsert(template, "INSERT INTO friends (user_id, friend_id, confirmed) VALUES (?, ?, TRUE)",
+                randomPairs(random, Math.min(FRIENDS_PER_USER, scale - 1), false));
+
+        template.update("""
+                UPDATE films f
+                SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+                """);
+        template.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (scale + 1));
+        template.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (scale + 1));
+    }
+
+    /**
+     * Для каждого пользователя выбирает {@code perUser} различных случайных идентификаторов.
+     * Для лайков пара записывается как (film_id, user_id), для дружбы — (user_id, friend_id) без петель.
+     */
+    private List<Object[]> randomPairs(Random random, int perUser, boolean filmFirst) {
+        List<Object[]> rows = new ArrayList<>(scale * perUser);
+        Set<Long> chosen = new HashSet<>();
+        for (long userId = 1; userId <= scale; userId++) {
+            chosen.clear();
+            while (chosen.size() < perUser) {
+                long other = 1 + random.nextInt(scale);
+                if (!filmFirst && other == userId) {
+                    continue;
+                }
+                if (chosen.add(other)) {
+                    rows.add(filmFirst ? new Object[]{other, userId} : new Object[]{userId, other});
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void batchInsert(JdbcTemplate template, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            template.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
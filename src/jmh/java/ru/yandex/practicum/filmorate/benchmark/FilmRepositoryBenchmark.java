@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры основных операций чтения {@link JdbcFilmRepository} на заполненной H2-базе.
+ * Размер данных задаётся параметром {@code scale}: {@code -p scale=100000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmRepositoryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int scale;
+
+    @Param({"10"})
+    public int popularCount;
+
+    private BenchmarkDatabase database;
+    private JdbcFilmRepository filmRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create(scale);
+        filmRepository = database.filmRepository();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Collection<Film> findAllFilms() {
+        return filmRepository.findAllFilms();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmRepository.getPopularFilms(popularCount);
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmRepository.getFilmById(1 + ThreadLocalRandom.current().nextLong(scale));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость маппинга одной строки в {@link Film} без обращения к базе.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmRowMapperBenchmark {
+
+    private final FilmRowMapper mapper = new FilmRowMapper();
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("film_id", Types.BIGINT, 19, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("release_date", Types.DATE, 10, 0);
+        resultSet.addColumn("duration", Types.INTEGER, 10, 0);
+        resultSet.addColumn("mpa_id", Types.BIGINT, 19, 0);
+        resultSet.addColumn("mpa_name", Types.VARCHAR, 10, 0);
+        resultSet.addRow(1L, "Film", "Description", Date.valueOf(LocalDate.of(2000, 1, 1)), 120, 3L, "PG-13");
+        resultSet.next();
+    }
+
+    @Benchmark
+    public Film mapRow() throws SQLException {
+        return mapper.mapRow(resultSet, 0);
+    }
+}
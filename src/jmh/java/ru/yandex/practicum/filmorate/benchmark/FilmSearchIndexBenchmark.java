@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время поиска в {@link FilmSearchIndex} без обращения к базе. Названия и описания собираются из словаря
+ * {@code vocabulary} случайных слов, поэтому частота слова в среднем равна scale · 12 / vocabulary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmSearchIndexBenchmark {
+    private static final Set<FilmSearchIndex.Field> ALL_FIELDS = EnumSet.allOf(FilmSearchIndex.Field.class);
+
+    @Param({"100000", "1000000"})
+    public int scale;
+
+    @Param({"200000"})
+    public int vocabulary;
+
+    private FilmSearchIndex index;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new FilmSearchIndex(null, new PopularityIndex(null, null));
+        Random random = new Random(42);
+        words = new String[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            words[i] = (i % 2 == 0 ? "фильм" : "movie") + Integer.toString(i, 36);
+        }
+        for (long id = 1; id <= scale; id++) {
+            index.index(Film.builder()
+                    .id(id)
+                    .name(phrase(random, 3))
+                    .description(phrase(random, 9))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<Long> exactWord() {
+        return index.search(words[next++ % vocabulary], ALL_FIELDS, 10);
+    }
+
+    @Benchmark
+    public List<Long> twoWordPrefix() {
+        String first = words[next++ % vocabulary];
+        String second = words[next++ % vocabulary];
+        return index.search(first + " " + second.substring(0, second.length() - 1), ALL_FIELDS, 10);
+    }
+
+    private String phrase(Random random, int length) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            phrase.append(words[random.nextInt(vocabulary)]).append(' ');
+        }
+        return phrase.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friend.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserRepository;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение поиска общих друзей для случайных пар пользователей: SQL-запрос
+ * {@link JdbcFriendRepository#getCommonFriends(Long, Long)} против пересечения в {@link FriendGraph}
+ * с загрузкой пользователей одним запросом, а также отдельно стоимость самого пересечения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendRepositoryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int scale;
+
+    private BenchmarkDatabase database;
+    private JdbcFriendRepository friendRepository;
+    private JdbcUserRepository userRepository;
+    private FriendGraph friendGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create(scale);
+        friendRepository = database.friendRepository();
+        userRepository = database.userRepository();
+        friendGraph = database.friendGraph();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return friendRepository.getCommonFriends(1 + random.nextLong(scale), 1 + random.nextLong(scale));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriendsFromGraph() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> ids = friendGraph.commonFriendIds(1 + random.nextLong(scale), 1 + random.nextLong(scale))
+                .orElseThrow();
+        return userRepository.getUsersByIds(ids);
+    }
+
+    @Benchmark
+    public List<Long> intersectFriendLists() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return friendGraph.commonFriendIds(1 + random.nextLong(scale), 1 + random.nextLong(scale)).orElseThrow();
+    }
+}
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import org.h2.tools.Server;
 
@@ -9,6 +10,7 @@ import java.sql.SQLException;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class FilmorateApplication {
 	public static void main(String[] args) throws SQLException {
 		Server.createTcpServer("-tcp", "-tcpAllowOthers", "-tcpPort", "9092").start();
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.cache;
+
+/**
+ * Снимок статистики кэша сущностей.
+ */
+public record CacheStats(String name,
+                         int size,
+                         long weight,
+                         long hits,
+                         long misses,
+                         double hitRate,
+                         long evictions,
+                         long loads,
+                         double averageLoadMillis) {
+}
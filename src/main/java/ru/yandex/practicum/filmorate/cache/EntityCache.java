@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Ограниченный LRU-кэш сущностей по ID.
+ * Вытеснение выполняется по числу записей и по суммарному весу, вес записи считает переданная функция.
+ * Кэш хранит и отдаёт копии объектов, поэтому изменение полученной сущности не портит закэшированную.
+ * Загрузка по промаху получает для своего ключа метку; изменение или инвалидация ключа метку снимает,
+ * и значение, загрузка которого началась раньше, в кэш не попадает — устаревшие данные не возвращаются
+ * после записи. Загрузки других ключей при этом не затрагиваются.
+ */
+public class EntityCache<K, V> {
+    private final String name;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final UnaryOperator<V> copier;
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private final Map<K, Object> loadTokens = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public EntityCache(String name, int maxEntries, long maxWeight, ToIntFunction<V> weigher, UnaryOperator<V> copier) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.copier = copier;
+    }
+
+    /**
+     * Возвращает сущность из кэша или загружает её и сохраняет в кэш.
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        Object token = new Object();
+        synchronized (this) {
+            V cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(copier.apply(cached));
+            }
+            loadTokens.put(key, token);
+        }
+        misses.increment();
+        long start = System.nanoTime();
+        Optional<V> loaded = Optional.empty();
+        try {
+            loaded = loader.apply(key);
+        } finally {
+            recordLoad(start);
+            finishLoad(key, loaded.orElse(null), token);
+        }
+        return loaded;
+    }
+
+    /**
+     * Возвращает сущности в порядке переданных ключей. Отсутствующие в кэше загружаются одним вызовом загрузчика,
+     * ключи, для которых сущность не найдена, пропускаются.
+     */
+    public List<V> getAll(List<K> keys, Function<List<K>, List<V>> loader, Function<V, K> keyOf) {
+        Map<K, V> found = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        Object token = new Object();
+        synchronized (this) {
+            for (K key : keys) {
+                V cached = entries.get(key);
+                if (cached != null) {
+                    found.put(key, copier.apply(cached));
+                } else {
+                    missing.add(key);
+                    loadTokens.put(key, token);
+                }
+            }
+        }
+        hits.add(found.size());
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            long start = System.nanoTime();
+            Map<K, V> loaded = new HashMap<>();
+            try {
+                for (V value : loader.apply(missing)) {
+                    loaded.put(keyOf.apply(value), value);
+                }
+            } finally {
+                recordLoad(start);
+                for (K key : missing) {
+                    finishLoad(key, loaded.get(key), token);
+                }
+            }
+            found.putAll(loaded);
+        }
+        return keys.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    public synchronized boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Изменяет закэшированную сущность на месте, если она есть в кэше.
+     */
+    public synchronized void patch(K key, Consumer<V> patch) {
+        loadTokens.remove(key);
+        V cached = entries.get(key);
+        if (cached != null) {
+            weight -= weigher.applyAsInt(cached);
+            patch.accept(cached);
+            weight += weigher.applyAsInt(cached);
+            evictIfNeeded();
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        loadTokens.remove(key);
+        V removed = entries.remove(key);
+        if (removed != null) {
+            weight -= weigher.applyAsInt(removed);
+        }
+    }
+
+    public synchronized void invalidateAll(Collection<K> keys) {
+        keys.forEach(this::invalidate);
+    }
+
+    public synchronized void invalidateAll() {
+        loadTokens.clear();
+        entries.clear();
+        weight = 0;
+    }
+
+    public CacheStats stats() {
+        int size;
+        long currentWeight;
+        synchronized (this) {
+            size = entries.size();
+            currentWeight = weight;
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        long loadCount = loads.sum();
+        return new CacheStats(name, size, currentWeight, hitCount, missCount,
+                requests == 0 ? 0 : (double) hitCount / requests,
+                evictions.sum(), loadCount,
+                loadCount == 0 ? 0 : loadNanos.sum() / 1_000_000.0 / loadCount);
+    }
+
+    /**
+     * Снимает метку загрузки и сохраняет загруженное значение, если с начала загрузки ключ не менялся
+     * и не начиналась более поздняя загрузка того же ключа.
+     */
+    private synchronized void finishLoad(K key, V value, Object token) {
+        if (loadTokens.get(key) != token) {
+            return;
+        }
+        loadTokens.remove(key);
+        if (value == null) {
+            return;
+        }
+        V copy = copier.apply(value);
+        V previous = entries.put(key, copy);
+        if (previous != null) {
+            weight -= weigher.applyAsInt(previous);
+        }
+        weight += weigher.applyAsInt(copy);
+        evictIfNeeded();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<V> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            weight -= weigher.applyAsInt(eldest.next());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void recordLoad(long startNanos) {
+        loads.increment();
+        loadNanos.add(System.nanoTime() - startNanos);
+    }
+}
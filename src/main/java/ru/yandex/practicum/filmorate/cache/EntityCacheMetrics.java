@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики {@link EntityCache} в стандартных для Micrometer именах: {@code cache.gets} с тегом
+ * {@code result=hit|miss}, {@code cache.puts} (загрузки по промаху), {@code cache.evictions} и {@code cache.size}.
+ * Дополнительно публикуются суммарный вес записей {@code cache.weight} и время загрузок {@code cache.load}.
+ */
+public class EntityCacheMetrics extends CacheMeterBinder<EntityCache<?, ?>> {
+
+    public EntityCacheMetrics(EntityCache<?, ?> cache) {
+        super(cache, cache.stats().name(), Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        EntityCache<?, ?> cache = getCache();
+        return cache == null ? null : (long) cache.stats().size();
+    }
+
+    @Override
+    protected long hitCount() {
+        EntityCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.stats().hits();
+    }
+
+    @Override
+    protected Long missCount() {
+        EntityCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.stats().misses();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        EntityCache<?, ?> cache = getCache();
+        return cache == null ? null : cache.stats().evictions();
+    }
+
+    @Override
+    protected long putCount() {
+        EntityCache<?, ?> cache = getCache();
+        return cache == null ? 0 : cache.stats().loads();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        EntityCache<?, ?> cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        Gauge.builder("cache.weight", cache, c -> c.stats().weight())
+                .tags(getTagsWithCacheName())
+                .description("Суммарный вес записей кэша")
+                .register(registry);
+        FunctionTimer.builder("cache.load", cache,
+                        c -> c.stats().loads(),
+                        c -> c.stats().averageLoadMillis() * c.stats().loads(),
+                        TimeUnit.MILLISECONDS)
+                .tags(getTagsWithCacheName())
+                .description("Время загрузки записей по промаху")
+                .register(registry);
+    }
+}
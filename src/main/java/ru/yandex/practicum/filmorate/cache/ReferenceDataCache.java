@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRepository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш справочников жанров и рейтингов MPA.
+ * Справочники загружаются из БД при старте (или при первом обращении) целиком в неизменяемый снимок
+ * и обновляются только явным вызовом {@link #refresh()}. Поиск по ID не обращается к БД.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final GenreRepository genreRepository;
+    private final MpaRepository mpaRepository;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile Snapshot snapshot;
+
+    public Optional<Genre> findGenreById(Long genreId) {
+        return lookup(snapshot().genres().get(genreId));
+    }
+
+    public List<Genre> findAllGenres() {
+        return snapshot().genreList();
+    }
+
+    public Optional<MpaRating> findMpaById(Long mpaId) {
+        return lookup(snapshot().mpaRatings().get(mpaId));
+    }
+
+    public List<MpaRating> findAllMpa() {
+        return snapshot().mpaList();
+    }
+
+    /**
+     * Перечитывает справочники из БД и атомарно подменяет снимок.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        List<Genre> genres = genreRepository.findAllGenres().stream()
+                .sorted(Comparator.comparingLong(Genre::getId))
+                .toList();
+        List<MpaRating> mpaRatings = mpaRepository.findAllMpa().stream()
+                .sorted(Comparator.comparingLong(MpaRating::getId))
+                .toList();
+        snapshot = new Snapshot(
+                genres.stream().collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity())),
+                genres,
+                mpaRatings.stream().collect(Collectors.toUnmodifiableMap(MpaRating::getId, Function.identity())),
+                mpaRatings);
+        log.info("Справочники загружены: жанров {}, рейтингов MPA {}", genres.size(), mpaRatings.size());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Число жанров и рейтингов в загруженном снимке; 0, если справочники ещё не загружены.
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.genreList().size() + current.mpaList().size();
+    }
+
+    private <T> Optional<T> lookup(T value) {
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(Map<Long, Genre> genres, List<Genre> genreList,
+                            Map<Long, MpaRating> mpaRatings, List<MpaRating> mpaList) {
+    }
+}
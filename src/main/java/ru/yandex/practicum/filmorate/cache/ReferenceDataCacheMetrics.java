@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Метрики {@link ReferenceDataCache}: {@code cache.gets} с тегом {@code result=hit|miss} и {@code cache.size}
+ * с тегом {@code cache="reference-data"}. Справочники не вытесняются и не загружаются по промаху,
+ * поэтому {@code cache.evictions} не публикуется, а {@code cache.puts} всегда 0.
+ */
+public class ReferenceDataCacheMetrics extends CacheMeterBinder<ReferenceDataCache> {
+    static final String CACHE_NAME = "reference-data";
+
+    public ReferenceDataCacheMetrics(ReferenceDataCache cache) {
+        super(cache, CACHE_NAME, Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        ReferenceDataCache cache = getCache();
+        return cache == null ? null : (long) cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        ReferenceDataCache cache = getCache();
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    @Override
+    protected Long missCount() {
+        ReferenceDataCache cache = getCache();
+        return cache == null ? null : cache.getMisses();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return null;
+    }
+
+    @Override
+    protected long putCount() {
+        return 0;
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    }
+}
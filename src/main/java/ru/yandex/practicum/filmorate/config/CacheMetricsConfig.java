@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.cache.EntityCacheMetrics;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCacheMetrics;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Публикует попадания, промахи и размер кэшей как метрики Micrometer ({@code cache.gets}, {@code cache.size}
+ * и другие с тегом {@code cache}). Spring Boot привязывает бины {@link MeterBinder} к реестру сам.
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder filmCacheMetrics(EntityCache<Long, Film> filmCache) {
+        return new EntityCacheMetrics(filmCache);
+    }
+
+    @Bean
+    public MeterBinder userCacheMetrics(EntityCache<Long, User> userCache) {
+        return new EntityCacheMetrics(userCache);
+    }
+
+    @Bean
+    public MeterBinder referenceDataCacheMetrics(ReferenceDataCache referenceDataCache) {
+        return new ReferenceDataCacheMetrics(referenceDataCache);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Кэши фильмов и пользователей перед репозиториями.
+ * Вес фильма растёт с числом лайков и жанров, поэтому фильмы с большим числом лайков вытесняются раньше.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    @Bean
+    public EntityCache<Long, Film> filmCache(@Value("${filmorate.cache.films.max-entries:10000}") int maxEntries,
+                                             @Value("${filmorate.cache.films.max-weight:1000000}") long maxWeight) {
+        return new EntityCache<>("films", maxEntries, maxWeight, EntityCacheConfig::weighFilm,
+                EntityCacheConfig::copyFilm);
+    }
+
+    @Bean
+    public EntityCache<Long, User> userCache(@Value("${filmorate.cache.users.max-entries:50000}") int maxEntries,
+                                             @Value("${filmorate.cache.users.max-weight:1000000}") long maxWeight) {
+        return new EntityCache<>("users", maxEntries, maxWeight, EntityCacheConfig::weighUser,
+                EntityCacheConfig::copyUser);
+    }
+
+    private static int weighFilm(Film film) {
+        return 1 + sizeOf(film.getLikes()) + sizeOf(film.getGenres());
+    }
+
+    private static int weighUser(User user) {
+        return 1 + sizeOf(user.getFriends());
+    }
+
+    private static Film copyFilm(Film film) {
+        return film.toBuilder()
+                .likes(film.getLikes() == null ? null : new HashSet<>(film.getLikes()))
+                .genres(film.getGenres() == null ? null : new LinkedHashSet<>(film.getGenres()))
+                .build();
+    }
+
+    private static User copyUser(User user) {
+        return user.toBuilder()
+                .friends(user.getFriends() == null ? null : new HashSet<>(user.getFriends()))
+                .build();
+    }
+
+    private static int sizeOf(Collection<?> collection) {
+        return collection == null ? 0 : collection.size();
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.base.FanOutJdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.base.QueryFanOut;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Пул для загрузки жанров фильма параллельно с запросами вызывающего потока.
+ * Запросы блокирующие, поэтому используются виртуальные потоки: каждый запрос получает свой поток,
+ * а число одновременных соединений по-прежнему ограничивает пул Hikari.
+ * Шаблон JDBC заменяется на {@link FanOutJdbcTemplate}, чтобы таймаут запроса в БД получали только
+ * запросы, запущенные через {@link QueryFanOut}; {@code NamedParameterJdbcTemplate} Spring Boot строит поверх него.
+ */
+@Configuration
+@Profile("!in-memory")
+public class FilmQueryConfig {
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new FanOutJdbcTemplate(dataSource);
+    }
+
+    @Bean(destroyMethod = "close")
+    public QueryFanOut filmQueryFanOut(@Value("${filmorate.films.query-timeout-ms:5000}") long timeoutMs) {
+        return new QueryFanOut(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("film-query-", 0).factory()),
+                Duration.ofMillis(timeoutMs));
+    }
+}
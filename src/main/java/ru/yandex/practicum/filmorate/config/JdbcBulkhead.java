@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.support.JdbcAccessor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничитель одновременных обращений к БД на уровне {@link NamedParameterJdbcOperations}.
+ * Каждый вызов шаблона (и полученного из него {@link JdbcOperations}) берёт разрешение семафора на время вызова.
+ * С виртуальными потоками число одновременных запросов не ограничено размером пула потоков,
+ * поэтому лишние потоки ждут на семафоре, а не в очереди пула соединений.
+ * <p>
+ * Разрешение реентерабельно в пределах потока: вызов шаблона изнутри другого вызова (например, из обработчика
+ * строк) не берёт второе разрешение и не может заблокировать сам себя, когда разрешения закончились.
+ * Поток, к которому уже привязано соединение (внутри {@code @Transactional}), разрешение не берёт: иначе
+ * транзакции, занявшие все соединения пула, ждали бы разрешений, а владельцы разрешений — соединений.
+ * Соединения, которые берутся из DataSource в обход шаблона (менеджер транзакций, инициализация схемы,
+ * health-проверки), ограничитель не учитывает.
+ */
+public class JdbcBulkhead {
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final ThreadLocal<int[]> depth = new ThreadLocal<>();
+
+    public JdbcBulkhead(int maxConcurrent, long acquireTimeoutMs) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public NamedParameterJdbcOperations wrap(NamedParameterJdbcOperations jdbc) {
+        DataSource dataSource = jdbc.getJdbcOperations() instanceof JdbcAccessor accessor
+                ? accessor.getDataSource()
+                : null;
+        return proxy(jdbc, NamedParameterJdbcOperations.class, dataSource);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Прокси-наследник сохраняет класс цели, как и {@link QueryMetrics}.
+     */
+    private <T> T proxy(T target, Class<T> type, DataSource dataSource) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            if (JdbcOperations.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+                JdbcOperations operations = (JdbcOperations) invocation.proceed();
+                return operations == null ? null : proxy(operations, JdbcOperations.class, dataSource);
+            }
+            int[] held = depth.get();
+            if (held == null) {
+                if (dataSource != null && TransactionSynchronizationManager.hasResource(dataSource)) {
+                    return invocation.proceed();
+                }
+                acquire();
+                held = new int[1];
+                depth.set(held);
+            }
+            held[0]++;
+            try {
+                return invocation.proceed();
+            } finally {
+                held[0]--;
+                if (held[0] == 0) {
+                    depth.remove();
+                    permits.release();
+                }
+            }
+        });
+        return type.cast(factory.getProxy());
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("Превышено время ожидания доступа к БД: "
+                        + acquireTimeoutMs + " мс, одновременных обращений не более " + maxConcurrent);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Ожидание доступа к БД прервано");
+        }
+    }
+}
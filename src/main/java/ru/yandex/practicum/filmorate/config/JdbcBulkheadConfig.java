@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+/**
+ * Включает {@link JdbcBulkhead} вместе с виртуальными потоками ({@code spring.threads.virtual.enabled=true}).
+ * По умолчанию число одновременных обращений равно размеру пула Hikari;
+ * переопределяется свойством {@code filmorate.jdbc.bulkhead.max-concurrent}.
+ * Ограничитель оборачивает шаблон после {@link JdbcMetricsConfig}, поэтому ожидание разрешения
+ * не входит во время запроса в метриках.
+ */
+@Slf4j
+@Configuration
+@Profile("!in-memory")
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class JdbcBulkheadConfig {
+
+    @Bean
+    public static BeanPostProcessor jdbcBulkheadPostProcessor(Environment environment) {
+        return new BulkheadPostProcessor(environment);
+    }
+
+    private static final class BulkheadPostProcessor implements BeanPostProcessor, Ordered {
+        private final Environment environment;
+
+        private BulkheadPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof NamedParameterJdbcOperations jdbc)) {
+                return bean;
+            }
+            int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+            int maxConcurrent = environment.getProperty("filmorate.jdbc.bulkhead.max-concurrent",
+                    Integer.class, poolSize);
+            long acquireTimeoutMs = environment.getProperty("filmorate.jdbc.bulkhead.acquire-timeout-ms",
+                    Long.class, 30_000L);
+            log.info("Обращения к БД через {} ограничены {} одновременными вызовами", beanName, maxConcurrent);
+            return new JdbcBulkhead(maxConcurrent, acquireTimeoutMs).wrap(jdbc);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.storage.friend.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.storage.like.JdbcLikeRepository;
+import ru.yandex.practicum.filmorate.storage.mpa.JdbcMpaRepository;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserRepository;
+
+import java.util.List;
+
+/**
+ * Оборачивает {@link NamedParameterJdbcOperations} в {@link QueryMetrics}: все JDBC-репозитории —
+ * и наследники {@code BaseNamedParameterRepository}, и работающие с шаблоном напрямую — получают метрики
+ * без изменений в самих репозиториях.
+ */
+@Slf4j
+@Configuration
+@Profile("!in-memory")
+public class JdbcMetricsConfig {
+    static final List<Class<?>> REPOSITORIES = List.of(
+            JdbcFilmRepository.class,
+            JdbcUserRepository.class,
+            JdbcFriendRepository.class,
+            JdbcLikeRepository.class,
+            JdbcGenreRepository.class,
+            JdbcMpaRepository.class);
+
+    @Bean
+    public static BeanPostProcessor queryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new QueryMetricsPostProcessor(registry);
+    }
+
+    /**
+     * Выполняется раньше {@link JdbcBulkheadConfig} и поэтому видит исходный шаблон, а не чужую обёртку.
+     */
+    private static final class QueryMetricsPostProcessor implements BeanPostProcessor, Ordered {
+        private final ObjectProvider<MeterRegistry> registry;
+
+        private QueryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof NamedParameterJdbcOperations jdbc) || AopUtils.isAopProxy(bean)) {
+                return bean;
+            }
+            log.info("Запросы через {} замеряются метриками {}", beanName, QueryMetrics.TIMER_NAME);
+            return new QueryMetrics(registry.getObject(), REPOSITORIES).wrap(jdbc);
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+    }
+}
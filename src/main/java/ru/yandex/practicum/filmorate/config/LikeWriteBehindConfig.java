@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.like.JdbcLikeRepository;
+import ru.yandex.practicum.filmorate.storage.like.WriteBehindLikeRepository;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Включает отложенную запись лайков ({@code filmorate.likes.write-behind.enabled=true}):
+ * {@link WriteBehindLikeRepository} становится основным репозиторием лайков поверх {@link JdbcLikeRepository}.
+ */
+@Configuration
+@Profile("!in-memory")
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class LikeWriteBehindConfig {
+
+    @Primary
+    @Bean(destroyMethod = "close")
+    public WriteBehindLikeRepository writeBehindLikeRepository(
+            JdbcLikeRepository jdbcLikeRepository,
+            ApplicationEventPublisher events,
+            @Value("${filmorate.likes.write-behind.shards:4}") int shards,
+            @Value("${filmorate.likes.write-behind.capacity:4096}") int capacity,
+            @Value("${filmorate.likes.write-behind.batch-size:256}") int batchSize,
+            @Value("${filmorate.likes.write-behind.flush-interval-ms:20}") long flushIntervalMs,
+            @Value("${filmorate.likes.write-behind.enqueue-timeout-ms:1000}") long enqueueTimeoutMs,
+            @Value("${filmorate.likes.write-behind.commit-timeout-ms:5000}") long commitTimeoutMs,
+            @Value("${filmorate.likes.write-behind.durability:async}") String durability) {
+        return new WriteBehindLikeRepository(jdbcLikeRepository, events, new WriteBehindLikeRepository.Settings(
+                shards, capacity, batchSize,
+                Duration.ofMillis(flushIntervalMs),
+                Duration.ofMillis(enqueueTimeoutMs),
+                Duration.ofMillis(commitTimeoutMs),
+                WriteBehindLikeRepository.Durability.valueOf(durability.trim().toUpperCase(Locale.ROOT))));
+    }
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
+
+/**
+ * Замеряет время и число строк каждого SQL-запроса репозиториев.
+ * {@link NamedParameterJdbcOperations} (и полученный из него {@link JdbcOperations}) оборачивается в прокси,
+ * который определяет запрос по тексту SQL: тексты констант {@code *_QUERY} репозиториев собираются при создании.
+ * Метрики {@value #TIMER_NAME} и {@value #ROWS_NAME} помечаются тегами {@code repository}, {@code query}
+ * (имя константы; запросы, которых нет среди констант, попадают в {@code query="other"}) и {@code operation}
+ * ({@code query}, {@code update} или {@code execute} — по имени вызванного метода шаблона).
+ * Таймер дополнительно помечается тегом {@code outcome}: {@code success} или {@code error}.
+ */
+public class QueryMetrics {
+    static final String TIMER_NAME = "filmorate.jdbc.query";
+    static final String ROWS_NAME = "filmorate.jdbc.rows";
+    private static final QueryName OTHER = new QueryName("other", "other");
+
+    private final MeterRegistry registry;
+    private final Map<String, QueryName> namesBySql;
+    private final Map<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry, Collection<Class<?>> repositories) {
+        this.registry = registry;
+        this.namesBySql = collectQueries(repositories);
+    }
+
+    public NamedParameterJdbcOperations wrap(NamedParameterJdbcOperations jdbc) {
+        return proxy(jdbc, NamedParameterJdbcOperations.class);
+    }
+
+    /**
+     * Прокси-наследник сохраняет класс цели: автоконфигурация Spring Boot (JdbcClient) ищет бин
+     * {@code namedParameterJdbcTemplate} по классу {@code NamedParameterJdbcTemplate}.
+     */
+    private <T> T proxy(T target, Class<T> type) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            Method method = invocation.getMethod();
+            Object[] args = invocation.getArguments();
+            if (JdbcOperations.class.isAssignableFrom(method.getReturnType())) {
+                JdbcOperations operations = (JdbcOperations) invocation.proceed();
+                return operations == null ? null : proxy(operations, JdbcOperations.class);
+            }
+            if (args.length == 0 || !(args[0] instanceof String sql)) {
+                return invocation.proceed();
+            }
+            return measure(target, method, args, sql);
+        });
+        return type.cast(factory.getProxy());
+    }
+
+    private Object measure(Object target, Method method, Object[] args, String sql) throws Throwable {
+        Operation operation = Operation.of(method);
+        Meters queryMeters = meters.computeIfAbsent(
+                new MeterKey(namesBySql.getOrDefault(sql, OTHER), operation), this::register);
+        Object[] callArgs = args;
+        CountingRowCallbackHandler counter = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i] instanceof RowCallbackHandler handler) {
+                counter = new CountingRowCallbackHandler(handler);
+                callArgs = args.clone();
+                callArgs[i] = counter;
+            }
+        }
+        long start = System.nanoTime();
+        Timer timer = queryMeters.errors();
+        try {
+            Object result = invoke(target, method, callArgs);
+            long rows = counter != null ? counter.rows : operation.rowsOf(result);
+            if (rows >= 0) {
+                queryMeters.rows().record(rows);
+            }
+            timer = queryMeters.successes();
+            return result;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters register(MeterKey key) {
+        String[] tags = {"repository", key.name().repository(), "query", key.name().query(),
+                "operation", key.operation().tag};
+        DistributionSummary rows = DistributionSummary.builder(ROWS_NAME)
+                .description("Число строк, прочитанных или изменённых SQL-запросом")
+                .baseUnit("rows")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000_000.0)
+                .register(registry);
+        return new Meters(timer(tags, "success"), timer(tags, "error"), rows);
+    }
+
+    private Timer timer(String[] tags, String outcome) {
+        return Timer.builder(TIMER_NAME)
+                .description("Время выполнения SQL-запроса")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Собирает тексты статических констант {@code *_QUERY}. Если один и тот же текст объявлен в нескольких
+     * репозиториях, метрика относится к первому из них.
+     */
+    private static Map<String, QueryName> collectQueries(Collection<Class<?>> repositories) {
+        Map<String, QueryName> names = new HashMap<>();
+        for (Class<?> repository : repositories) {
+            for (Field field : repository.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class
+                        && field.getName().endsWith("_QUERY")) {
+                    try {
+                        field.setAccessible(true);
+                        names.putIfAbsent((String) field.get(null),
+                                new QueryName(repository.getSimpleName(), field.getName()));
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("Не удалось прочитать " + field.getName(), e);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Вид вызова шаблона. Число строк считается по-разному: чтение возвращает сами строки,
+     * изменение — число изменённых строк.
+     */
+    private enum Operation {
+        QUERY("query"),
+        UPDATE("update"),
+        EXECUTE("execute");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+
+        static Operation of(Method method) {
+            String name = method.getName();
+            if (name.startsWith("query")) {
+                return QUERY;
+            }
+            if (name.equals("update") || name.equals("batchUpdate")) {
+                return UPDATE;
+            }
+            return EXECUTE;
+        }
+
+        /**
+         * Число строк по результату вызова: для чтения — размер списка или 1 для одиночного значения,
+         * для изменения — число изменённых строк или сумма по пакету. -1 — неизвестно (не записывается),
+         * например для потока строк, который читается уже после возврата из шаблона.
+         */
+        long rowsOf(Object result) {
+            if (result == null) {
+                return -1;
+            }
+            return switch (this) {
+                case QUERY -> result instanceof Collection<?> collection ? collection.size()
+                        : result instanceof BaseStream<?, ?> ? -1 : 1;
+                case UPDATE -> updatedRows(result);
+                case EXECUTE -> -1;
+            };
+        }
+
+        private static long updatedRows(Object result) {
+            if (result instanceof Integer updated) {
+                return updated;
+            }
+            if (result instanceof int[] batch) {
+                return sum(batch);
+            }
+            if (result instanceof int[][] batches) {
+                long total = 0;
+                for (int[] batch : batches) {
+                    total += sum(batch);
+                }
+                return total;
+            }
+            return -1;
+        }
+
+        /**
+         * Элемент пакета, для которого драйвер вернул {@link Statement#SUCCESS_NO_INFO}, считается одной строкой.
+         */
+        private static long sum(int[] batch) {
+            long total = 0;
+            for (int updated : batch) {
+                total += updated == Statement.SUCCESS_NO_INFO ? 1 : Math.max(updated, 0);
+            }
+            return total;
+        }
+    }
+
+    private record QueryName(String repository, String query) {
+    }
+
+    private record MeterKey(QueryName name, Operation operation) {
+    }
+
+    private record Meters(Timer successes, Timer errors, DistributionSummary rows) {
+    }
+
+    private static final class CountingRowCallbackHandler implements RowCallbackHandler {
+        private final RowCallbackHandler delegate;
+        private long rows;
+
+        private CountingRowCallbackHandler(RowCallbackHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            rows++;
+            delegate.processRow(rs);
+        }
+    }
+}
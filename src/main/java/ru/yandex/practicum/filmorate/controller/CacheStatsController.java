@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+
+import java.util.List;
+
+/**
+ * Статистика кэшей сущностей: доля попаданий, число вытеснений и среднее время загрузки.
+ */
+@RestController
+@RequestMapping("/cache")
+@RequiredArgsConstructor
+public class CacheStatsController {
+    private final List<EntityCache<?, ?>> caches;
+
+    @GetMapping("/stats")
+    public List<CacheStats> getStats() {
+        return caches.stream().map(EntityCache::stats).toList();
+    }
+}
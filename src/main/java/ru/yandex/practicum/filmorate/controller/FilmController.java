@@ -1,13 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmCatalogStats;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Контроллер для работы с фильмами.
@@ -19,15 +30,41 @@ import java.util.Collection;
 @RequiredArgsConstructor
 public class FilmController {
     private final FilmService filmService;
+    private final RecommendationService recommendationService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<Film> findAllFilms() {
-        return filmService.findAllFilms();
+    public Collection<Film> findAllFilms(@RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return filmService.findAllFilms();
+        }
+        return filmService.findFilmsPage(after, limit);
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody exportFilms() {
+        return NdjsonStreams.of(objectMapper, filmService::forEachFilm);
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopulateFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public Collection<Film> getPopulateFilms(@RequestParam(defaultValue = "10") int count,
+                                             @RequestParam(required = false) Long genreId,
+                                             @RequestParam(required = false) Integer year,
+                                             @RequestParam(required = false) Long mpaId) {
+        return filmService.getPopularFilms(count, new PopularFilmsFilter(genreId, year, mpaId));
+    }
+
+    @GetMapping("/stats")
+    public FilmCatalogStats getStats() {
+        return filmService.getStats();
+    }
+
+    @GetMapping("/search")
+    public Collection<Film> searchFilms(@RequestParam String query,
+                                        @RequestParam(defaultValue = "title,description") List<String> by,
+                                        @RequestParam(defaultValue = "10") int count) {
+        return filmService.searchFilms(query, by, count);
     }
 
     @GetMapping("/{id}")
@@ -35,11 +72,29 @@ public class FilmController {
         return filmService.getFilmById(id);
     }
 
+    @GetMapping("/{id}/similar")
+    public Collection<Film> getSimilarFilms(@PathVariable Long id,
+                                            @RequestParam(defaultValue = "10") int count) {
+        return recommendationService.getSimilarFilms(id, count);
+    }
+
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
         return filmService.createFilm(film);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchImportResult createFilms(@RequestBody List<Film> films) {
+        return filmService.createFilms(films.iterator());
+    }
+
+    @PostMapping(value = "/batch", consumes = NdjsonStreams.MEDIA_TYPE)
+    public BatchImportResult createFilmsFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            return filmService.createFilms(films);
+        }
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film newFilm) {
         return filmService.updateFilm(newFilm);
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Формирует потоковые ответы в формате NDJSON: по одному JSON-объекту на строку.
+ * Объекты сериализуются в ответ по мере получения, без накопления всей коллекции в памяти.
+ */
+final class NdjsonStreams {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private NdjsonStreams() {
+    }
+
+    static <T> StreamingResponseBody of(ObjectMapper objectMapper, Consumer<Consumer<T>> producer) {
+        return outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream)) {
+                producer.accept(value -> {
+                    try {
+                        writer.write(value);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+}
@@ -1,14 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FriendService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Контроллер для работы с пользователями.
@@ -21,10 +32,21 @@ import java.util.Collection;
 public class UserController {
     private final UserService userService;
     private final FriendService friendService;
+    private final RecommendationService recommendationService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<User> findAllUsers() {
-        return userService.findAllUsers();
+    public Collection<User> findAllUsers(@RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return userService.findAllUsers();
+        }
+        return userService.findUsersPage(after, limit);
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody exportUsers() {
+        return NdjsonStreams.of(objectMapper, userService::forEachUser);
     }
 
     @GetMapping("/{userId}/friends")
@@ -32,12 +54,24 @@ public class UserController {
         return friendService.getFriends(userId);
     }
 
+    @GetMapping("/{userId}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(@PathVariable Long userId,
+                                                 @RequestParam(defaultValue = "10") int count) {
+        return friendService.getFriendSuggestions(userId, count);
+    }
+
     @GetMapping("/{userId}/friends/common/{otherId}")
     public Collection<User> getCommonFriends(@PathVariable Long userId,
                                              @PathVariable Long otherId) {
         return friendService.getCommonFriends(userId, otherId);
     }
 
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable Long id,
+                                               @RequestParam(defaultValue = "10") int count) {
+        return recommendationService.getRecommendations(id, count);
+    }
+
     @GetMapping("/{id}")
     public User getUserById(@PathVariable Long id) {
         return userService.getUserById(id);
@@ -48,6 +82,30 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchImportResult createUsers(@RequestBody List<User> users) {
+        return userService.createUsers(users.iterator());
+    }
+
+    @PostMapping(value = "/batch", consumes = NdjsonStreams.MEDIA_TYPE)
+    public BatchImportResult createUsersFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)) {
+            return userService.createUsers(users);
+        }
+    }
+
+    @PostMapping(value = "/friends/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchImportResult addFriends(@RequestBody List<Friendship> friendships) {
+        return friendService.addFriends(friendships.iterator());
+    }
+
+    @PostMapping(value = "/friends/batch", consumes = NdjsonStreams.MEDIA_TYPE)
+    public BatchImportResult addFriendsFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<Friendship> friendships = objectMapper.readerFor(Friendship.class).readValues(body)) {
+            return friendService.addFriends(friendships);
+        }
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
         return userService.updateUser(user);
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Общая загрузка каталога для построения индексов в памяти ({@link PopularityIndex}, {@link FilmSearchIndex},
+ * {@link FilmStatistics}). Фильмы читаются потоком, жанры — одним запросом на весь каталог, число лайков берётся
+ * из {@link LikeGraph}, поэтому граф должен быть построен раньше.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilmCatalogLoader {
+    private final FilmRepository filmRepository;
+    private final GenreRepository genreRepository;
+    private final LikeGraph likeGraph;
+
+    /**
+     * Обходит все фильмы без жанров и лайков.
+     */
+    public void forEachFilm(Consumer<Film> action) {
+        filmRepository.forEachFilm(action);
+    }
+
+    /**
+     * Обходит все фильмы с заполненными жанрами и передаёт вместе с каждым число его лайков в графе.
+     *
+     * @throws IllegalStateException если граф лайков не построен
+     */
+    public void forEachFilmWithLikes(ObjLongConsumer<Film> action) {
+        if (likeGraph.isStale()) {
+            throw new IllegalStateException("Граф лайков не построен");
+        }
+        Map<Long, Set<Genre>> genres = genreRepository.findAllFilmGenres();
+        filmRepository.forEachFilm(film -> {
+            film.setGenres(genres.getOrDefault(film.getId(), Set.of()));
+            action.accept(film, likeGraph.likeCount(film.getId()));
+        });
+    }
+}
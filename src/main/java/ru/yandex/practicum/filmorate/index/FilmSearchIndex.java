@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Полнотекстовый индекс фильмов по названию и описанию.
+ * Для каждого поля хранит упорядоченный словарь «термин → отсортированный список ID фильмов», поэтому поиск
+ * по префиксу — это просмотр диапазона словаря. Строится при старте из всех фильмов и обновляется
+ * из {@code FilmService} при создании и изменении фильма.
+ * <p>
+ * Фильм попадает в результат, если каждое слово запроса совпадает с началом какого-либо слова в выбранных полях.
+ * Счёт фильма — сумма весов лучших совпадений слов запроса плюс {@link #LIKE_WEIGHT}·ln(1 + лайки).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    /**
+     * Вес популярности при ранжировании: фильм со 100 лайками получает прибавку около 1.15,
+     * примерно как точное совпадение слова в описании.
+     */
+    static final double LIKE_WEIGHT = 0.25;
+
+    /**
+     * Совпадение по префиксу весит меньше точного совпадения слова.
+     */
+    static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    /**
+     * Сколько терминов словаря разворачивается из одного префикса. Ограничивает время ответа
+     * на короткие префиксы вроде «а»: если терминов с префиксом больше, берутся сам префикс как целое слово
+     * и самые частые термины — они дают больше всего совпадений.
+     */
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final Comparator<Map.Entry<String, Postings>> MOST_FREQUENT_FIRST = Comparator
+            .<Map.Entry<String, Postings>>comparingInt(entry -> entry.getValue().view.size()).reversed()
+            .thenComparing(Map.Entry::getKey);
+
+    private static final Comparator<Map.Entry<Long, double[]>> BEST_FIRST = Comparator
+            .<Map.Entry<Long, double[]>>comparingDouble(entry -> entry.getValue()[0]).reversed()
+            .thenComparingLong(Map.Entry::getKey);
+
+    private final FilmCatalogLoader catalogLoader;
+    private final PopularityIndex popularityIndex;
+
+    private final RebuildableState<State> state = new RebuildableState<>(new State());
+
+    public enum Field {
+        TITLE(2.0),
+        DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            State newState = state.rebuild(this::load);
+            log.info("Поисковый индекс фильмов построен, фильмов: {}, терминов: {}", newState.documents.size(),
+                    newState.termCount());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить поисковый индекс фильмов: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Добавляет фильм в индекс или заменяет его прежние название и описание.
+     */
+    public void index(Film film) {
+        state.update(current -> current.index(film));
+    }
+
+    /**
+     * Число терминов в словарях всех полей.
+     */
+    int termCount() {
+        return state.get().termCount();
+    }
+
+    /**
+     * Возвращает ID фильмов, подходящих под запрос, по убыванию счёта; при равенстве меньший ID идёт первым.
+     */
+    public List<Long> search(String query, Set<Field> fields, int count) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || fields.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        State current = state.get();
+        Map<Long, double[]> scores = null;
+        for (String term : terms) {
+            Map<Long, double[]> termScores = new HashMap<>();
+            for (Field field : fields) {
+                current.match(field, term, scores, termScores);
+            }
+            if (scores != null) {
+                Map<Long, double[]> previous = scores;
+                termScores.forEach((filmId, score) -> score[0] += previous.get(filmId)[0]);
+            }
+            scores = termScores;
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        scores.forEach((filmId, score) -> score[0] += LIKE_WEIGHT * Math.log1p(popularityIndex.score(filmId)));
+        return top(scores, count);
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр (кириллица, латиница и другие алфавиты), приводит их
+     * к нижнему регистру и заменяет «ё» на «е». Повторяющиеся слова возвращаются один раз.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                char lower = Character.toLowerCase(c);
+                term.append(lower == 'ё' ? 'е' : lower);
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private State load() {
+        State newState = new State();
+        catalogLoader.forEachFilm(newState::index);
+        return newState;
+    }
+
+    private static List<Long> top(Map<Long, double[]> scores, int count) {
+        PriorityQueue<Map.Entry<Long, double[]>> heap = new PriorityQueue<>(count + 1, BEST_FIRST.reversed());
+        for (Map.Entry<Long, double[]> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, double[]>> best = new ArrayList<>(heap);
+        best.sort(BEST_FIRST);
+        return best.stream().map(Map.Entry::getKey).toList();
+    }
+
+    private record Document(List<String> titleTerms, List<String> descriptionTerms) {
+        List<String> terms(Field field) {
+            return field == Field.TITLE ? titleTerms : descriptionTerms;
+        }
+    }
+
+    private static final class State {
+        private final Map<Field, ConcurrentSkipListMap<String, Postings>> dictionaries = new EnumMap<>(Field.class);
+        private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+
+        private State() {
+            for (Field field : Field.values()) {
+                dictionaries.put(field, new ConcurrentSkipListMap<>());
+            }
+        }
+
+        /**
+         * Обновления одного фильма сериализуются через {@link ConcurrentHashMap#compute}: старые термины
+         * удаляются из словаря, новые добавляются. Термин, у которого не осталось фильмов, удаляется из словаря.
+         */
+        void index(Film film) {
+            long filmId = film.getId();
+            Document document = new Document(tokenize(film.getName()), tokenize(film.getDescription()));
+            documents.compute(filmId, (id, previous) -> {
+                for (Field field : Field.values()) {
+                    ConcurrentSkipListMap<String, Postings> dictionary = dictionaries.get(field);
+                    Collection<String> oldTerms = previous == null ? List.of() : previous.terms(field);
+                    for (String term : oldTerms) {
+                        if (!document.terms(field).contains(term)) {
+                            removePosting(dictionary, term, filmId);
+                        }
+                    }
+                    for (String term : document.terms(field)) {
+                        if (!oldTerms.contains(term)) {
+                            addPosting(dictionary, term, filmId);
+                        }
+                    }
+                }
+                return document;
+            });
+        }
+
+        int termCount() {
+            return dictionaries.values().stream().mapToInt(Map::size).sum();
+        }
+
+        /**
+         * Начисляет фильмам, у которых в поле есть слово с префиксом {@code term}, вес лучшего совпадения.
+         * Если {@code candidates} задан, рассматриваются только фильмы из него (совпавшие с предыдущими словами).
+         */
+        void match(Field field, String term, Map<Long, double[]> candidates, Map<Long, double[]> termScores) {
+            for (Map.Entry<String, Postings> entry : expand(dictionaries.get(field), term)) {
+                double weight = field.weight * (entry.getKey().length() == term.length() ? 1.0 : PREFIX_MATCH_FACTOR);
+                Postings.View view = entry.getValue().view;
+                for (int i = 0; i < view.size(); i++) {
+                    long filmId = view.ids()[i];
+                    if (candidates == null || candidates.containsKey(filmId)) {
+                        double[] score = termScores.computeIfAbsent(filmId, id -> new double[1]);
+                        score[0] = Math.max(score[0], weight);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Термины словаря с префиксом {@code term}, не больше {@link #MAX_PREFIX_EXPANSIONS}: точное совпадение
+         * и самые частые из остальных.
+         */
+        private static Collection<Map.Entry<String, Postings>> expand(
+                ConcurrentSkipListMap<String, Postings> dictionary, String term) {
+            Map<String, Postings> range = dictionary.subMap(term, true, term + Character.MAX_VALUE, false);
+            List<Map.Entry<String, Postings>> expansions = new ArrayList<>(MAX_PREFIX_EXPANSIONS);
+            PriorityQueue<Map.Entry<String, Postings>> mostFrequent =
+                    new PriorityQueue<>(MAX_PREFIX_EXPANSIONS + 1, MOST_FREQUENT_FIRST.reversed());
+            for (Map.Entry<String, Postings> entry : range.entrySet()) {
+                if (entry.getKey().length() == term.length()) {
+                    expansions.add(entry);
+                    continue;
+                }
+                mostFrequent.offer(entry);
+                if (mostFrequent.size() > MAX_PREFIX_EXPANSIONS - expansions.size()) {
+                    mostFrequent.poll();
+                }
+            }
+            expansions.addAll(mostFrequent);
+            return expansions;
+        }
+
+        private static void addPosting(ConcurrentSkipListMap<String, Postings> dictionary, String term, long filmId) {
+            while (!dictionary.computeIfAbsent(term, key -> new Postings()).add(filmId)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        /**
+         * Опустевший список удаляется из словаря под его же блокировкой, поэтому параллельное добавление
+         * либо успевает раньше, либо видит список выведенным из словаря и создаёт новый.
+         */
+        private static void removePosting(ConcurrentSkipListMap<String, Postings> dictionary, String term,
+                                          long filmId) {
+            Postings postings = dictionary.get(term);
+            if (postings == null) {
+                return;
+            }
+            synchronized (postings) {
+                if (postings.remove(filmId)) {
+                    dictionary.remove(term, postings);
+                }
+            }
+        }
+    }
+
+    /**
+     * Отсортированный список ID фильмов одного термина. Читатели берут неизменяемое представление
+     * {@link View} без блокировки. Новые фильмы получают возрастающие ID, поэтому добавление обычно дописывает
+     * значение в запасную ёмкость массива за амортизированное O(1): элемент за границей {@code size} не виден
+     * ни одному опубликованному представлению. Вставка в середину и удаление создают новый массив.
+     */
+    private static final class Postings {
+        private volatile View view = new View(SortedLongArrays.EMPTY, 0);
+        private boolean retired;
+
+        /**
+         * @return false, если список уже выведен из словаря и фильм нужно добавить в новый
+         */
+        synchronized boolean add(long filmId) {
+            if (retired) {
+                return false;
+            }
+            View current = view;
+            int size = current.size();
+            long[] ids = current.ids();
+            if (size > 0 && ids[size - 1] >= filmId) {
+                long[] inserted = SortedLongArrays.insert(Arrays.copyOf(ids, size), filmId);
+                view = new View(inserted, inserted.length);
+                return true;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+            ids[size] = filmId;
+            view = new View(ids, size + 1);
+            return true;
+        }
+
+        /**
+         * @return true, если список опустел: он помечается выведенным и больше не принимает фильмы
+         */
+        synchronized boolean remove(long filmId) {
+            View current = view;
+            long[] remaining = SortedLongArrays.remove(Arrays.copyOf(current.ids(), current.size()), filmId);
+            view = remaining == null ? new View(SortedLongArrays.EMPTY, 0) : new View(remaining, remaining.length);
+            retired = remaining == null;
+            return retired;
+        }
+
+        private record View(long[] ids, int size) {
+        }
+    }
+}
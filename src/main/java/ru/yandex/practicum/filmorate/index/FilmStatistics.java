@@ -0,0 +1,175 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmCatalogStats;
+import ru.yandex.practicum.filmorate.model.FilmGroupStats;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Агрегаты каталога в памяти: число фильмов, сумма лайков, суммарная продолжительность и гистограмма годов выхода —
+ * по всему каталогу, по каждому жанру и по каждому рейтингу MPA.
+ * Строятся из БД при старте и дальше меняются на разницу при создании и изменении фильма и при лайках,
+ * поэтому {@code GET /films/stats} не пересчитывает их по запросу. Число лайков фильма берётся из {@link LikeGraph},
+ * а разница считается с учтённым ранее значением, так что повторно применённое изменение ничего не меняет.
+ * Расхождение из-за несостоявшейся записи исправляет периодическая перестройка ({@code LikeCountConsistencyService}),
+ * которая не теряет изменений, сделанных во время чтения БД (см. {@link RebuildableState}).
+ * Изменения одного фильма сериализуются через {@link ConcurrentHashMap#compute}; счётчики — {@link LongAdder},
+ * поэтому ответ, собранный во время записи, может учитывать её частично.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmStatistics {
+    private final FilmCatalogLoader catalogLoader;
+    private final LikeGraph likeGraph;
+    private final ReferenceDataCache referenceDataCache;
+
+    private final RebuildableState<State> state = new RebuildableState<>(new State());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            State newState = state.rebuild(this::load);
+            log.info("Статистика каталога построена, фильмов: {}", newState.films.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить статистику каталога: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Учитывает новый фильм или заменяет вклад изменённого. Пустой список жанров, как и в репозитории,
+     * оставляет прежние жанры.
+     */
+    public void register(Film film) {
+        state.update(current -> register(current, film));
+    }
+
+    private void register(State current, Film film) {
+        current.films.compute(film.getId(), (id, previous) -> {
+            FilmFacts facts = previous == null
+                    ? FilmFacts.of(film, List.of(), likeGraph.likeCount(id))
+                    : FilmFacts.of(film, previous.genreIds(), previous.likes());
+            if (previous != null) {
+                current.forEachAggregate(previous, aggregate -> aggregate.add(previous, -1));
+            }
+            current.forEachAggregate(facts, aggregate -> aggregate.add(facts, 1));
+            return facts;
+        });
+    }
+
+    /**
+     * Приводит число лайков фильма к текущему значению в {@link LikeGraph}. Вызывается после изменения графа.
+     */
+    public void refreshLikes(long filmId) {
+        state.update(current -> current.films.computeIfPresent(filmId, (id, facts) -> {
+            long delta = likeGraph.likeCount(id) - facts.likes();
+            current.forEachAggregate(facts, aggregate -> aggregate.likes.add(delta));
+            return facts.withLikes(facts.likes() + delta);
+        }));
+    }
+
+    /**
+     * Снимок агрегатов. Жанры и рейтинги перечисляются по справочникам, включая те, у которых нет фильмов.
+     */
+    public FilmCatalogStats stats() {
+        State current = state.get();
+        List<FilmGroupStats> byGenre = referenceDataCache.findAllGenres().stream()
+                .map(genre -> current.genres.getOrDefault(genre.getId(), Aggregate.EMPTY)
+                        .toStats(genre.getId(), genre.getName()))
+                .toList();
+        List<FilmGroupStats> byMpa = referenceDataCache.findAllMpa().stream()
+                .map(mpa -> current.mpaRatings.getOrDefault(mpa.getId(), Aggregate.EMPTY)
+                        .toStats(mpa.getId(), mpa.getName()))
+                .toList();
+        return new FilmCatalogStats(current.total.toStats(null, null), byGenre, byMpa);
+    }
+
+    private State load() {
+        State newState = new State();
+        catalogLoader.forEachFilmWithLikes((film, likes) -> {
+            FilmFacts facts = FilmFacts.of(film, List.of(), likes);
+            newState.films.put(film.getId(), facts);
+            newState.forEachAggregate(facts, aggregate -> aggregate.add(facts, 1));
+        });
+        return newState;
+    }
+
+    /**
+     * Вклад одного фильма в агрегаты; хранится, чтобы при изменении фильма вычесть прежний вклад.
+     */
+    private record FilmFacts(List<Long> genreIds, Long mpaId, int duration, Integer year, long likes) {
+        static FilmFacts of(Film film, List<Long> previousGenreIds, long likes) {
+            List<Long> genreIds = film.getGenres() == null || film.getGenres().isEmpty()
+                    ? previousGenreIds
+                    : film.getGenres().stream().map(Genre::getId).distinct().toList();
+            return new FilmFacts(genreIds,
+                    film.getMpa() == null ? null : film.getMpa().getId(),
+                    film.getDuration(),
+                    film.getReleaseDate() == null ? null : film.getReleaseDate().getYear(),
+                    likes);
+        }
+
+        FilmFacts withLikes(long newLikes) {
+            return new FilmFacts(genreIds, mpaId, duration, year, newLikes);
+        }
+    }
+
+    private static final class Aggregate {
+        private static final Aggregate EMPTY = new Aggregate();
+
+        private final LongAdder films = new LongAdder();
+        private final LongAdder likes = new LongAdder();
+        private final LongAdder durationSum = new LongAdder();
+        private final ConcurrentHashMap<Integer, LongAdder> releaseYears = new ConcurrentHashMap<>();
+
+        void add(FilmFacts facts, int sign) {
+            films.add(sign);
+            likes.add(sign * facts.likes());
+            durationSum.add((long) sign * facts.duration());
+            if (facts.year() != null) {
+                releaseYears.computeIfAbsent(facts.year(), year -> new LongAdder()).add(sign);
+            }
+        }
+
+        FilmGroupStats toStats(Long id, String name) {
+            long filmCount = films.sum();
+            SortedMap<Integer, Long> histogram = new TreeMap<>();
+            releaseYears.forEach((year, count) -> {
+                long value = count.sum();
+                if (value > 0) {
+                    histogram.put(year, value);
+                }
+            });
+            double averageDuration = filmCount > 0 ? (double) durationSum.sum() / filmCount : 0;
+            return new FilmGroupStats(id, name, filmCount, likes.sum(), averageDuration, histogram);
+        }
+    }
+
+    private static final class State {
+        private final ConcurrentHashMap<Long, FilmFacts> films = new ConcurrentHashMap<>();
+        private final Aggregate total = new Aggregate();
+        private final ConcurrentHashMap<Long, Aggregate> genres = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Aggregate> mpaRatings = new ConcurrentHashMap<>();
+
+        void forEachAggregate(FilmFacts facts, Consumer<Aggregate> action) {
+            action.accept(total);
+            facts.genreIds().forEach(genreId -> action.accept(genres.computeIfAbsent(genreId, id -> new Aggregate())));
+            if (facts.mpaId() != null) {
+                action.accept(mpaRatings.computeIfAbsent(facts.mpaId(), id -> new Aggregate()));
+            }
+        }
+    }
+}
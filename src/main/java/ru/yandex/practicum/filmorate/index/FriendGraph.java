@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.friend.FriendRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранится отсортированный массив ID его друзей.
+ * Строится из таблицы friends при старте и обновляется из {@code FriendService}; изменения, сделанные во время
+ * перестройки, не теряются (см. {@link RebuildableState}).
+ * Используется для поиска общих друзей и рекомендаций друзей без обращения к БД.
+ * До первой успешной перестройки граф считается устаревшим, и общие друзья ищутся в БД.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraph {
+    /**
+     * Число друзей, начиная с которого обход друзей второго уровня выполняется параллельно.
+     */
+    static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * Ограничение общего числа просмотренных связей на один запрос.
+     */
+    static final int MAX_VISITS = 500_000;
+
+    private static final int CHUNK_SIZE = 128;
+
+    private final FriendRepository friendRepository;
+
+    private final RebuildableState<ConcurrentHashMap<Long, long[]>> friendsByUser =
+            new RebuildableState<>(new ConcurrentHashMap<>());
+    private volatile boolean stale = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            ConcurrentHashMap<Long, long[]> adjacency = friendsByUser.rebuild(this::load);
+            stale = false;
+            log.info("Граф дружбы построен, пользователей со связями: {}", adjacency.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить граф дружбы: {}", e.getMessage(), e);
+        }
+    }
+
+    public void addFriend(long userId, long friendId) {
+        friendsByUser.update(adjacency ->
+                adjacency.compute(userId, (id, friends) -> SortedLongArrays.insert(friends, friendId)));
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        friendsByUser.update(adjacency ->
+                adjacency.compute(userId, (id, friends) -> SortedLongArrays.remove(friends, friendId)));
+    }
+
+    /**
+     * ID общих друзей двух пользователей в порядке возрастания: пересечение их списков смежности.
+     *
+     * @return пустой Optional, если граф не построен или помечен как устаревший
+     */
+    public Optional<List<Long>> commonFriendIds(long userId, long otherId) {
+        if (stale) {
+            return Optional.empty();
+        }
+        Map<Long, long[]> adjacency = friendsByUser.get();
+        long[] common = SortedLongArrays.intersect(adjacency.getOrDefault(userId, SortedLongArrays.EMPTY),
+                adjacency.getOrDefault(otherId, SortedLongArrays.EMPTY));
+        return Optional.of(Arrays.stream(common).boxed().toList());
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Друзья друзей пользователя, ещё не входящие в его друзья, по убыванию числа общих друзей.
+     * Для пользователей с большим числом друзей обход распараллеливается; общий объём работы ограничен
+     * {@link #MAX_VISITS}, поэтому для очень крупных аккаунтов результат строится по части графа.
+     */
+    public List<Long> suggestionIds(long userId, int count) {
+        Map<Long, long[]> adjacency = friendsByUser.get();
+        long[] friends = adjacency.getOrDefault(userId, SortedLongArrays.EMPTY);
+        AtomicInteger budget = new AtomicInteger(MAX_VISITS);
+        if (friends.length < PARALLEL_THRESHOLD) {
+            return countMutualFriends(adjacency, userId, friends, 0, friends.length, budget).top(count);
+        }
+        int chunks = (friends.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> countMutualFriends(adjacency, userId, friends, chunk * CHUNK_SIZE,
+                        Math.min(friends.length, (chunk + 1) * CHUNK_SIZE), budget))
+                .toList()
+                .stream()
+                .reduce(new Scores(), Scores::merge)
+                .top(count);
+    }
+
+    private ConcurrentHashMap<Long, long[]> load() {
+        Map<Long, SortedLongArrays.Builder> builders = new HashMap<>();
+        friendRepository.forEachFriendship((userId, friendId) ->
+                builders.computeIfAbsent(userId, id -> new SortedLongArrays.Builder()).add(friendId));
+        ConcurrentHashMap<Long, long[]> adjacency = new ConcurrentHashMap<>(builders.size());
+        builders.forEach((userId, builder) -> adjacency.put(userId, builder.build()));
+        return adjacency;
+    }
+
+    private static Scores countMutualFriends(Map<Long, long[]> adjacency, long userId, long[] friends,
+                                             int from, int to, AtomicInteger budget) {
+        Scores scores = new Scores();
+        for (int i = from; i < to; i++) {
+            long[] friendsOfFriend = adjacency.getOrDefault(friends[i], SortedLongArrays.EMPTY);
+            if (budget.addAndGet(-friendsOfFriend.length) < 0) {
+                break;
+            }
+            for (long candidate : friendsOfFriend) {
+                if (candidate != userId && !SortedLongArrays.contains(friends, candidate)) {
+                    scores.increment(candidate);
+                }
+            }
+        }
+        return scores;
+    }
+}
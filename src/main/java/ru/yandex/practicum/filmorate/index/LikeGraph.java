@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Двудольный граф лайков «фильм — пользователь» в памяти.
+ * Для каждого фильма хранит отсортированный массив ID лайкнувших пользователей, для каждого пользователя —
+ * массив ID понравившихся фильмов. Строится из таблицы likes при старте и обновляется из {@code LikeService}.
+ * Похожие фильмы и рекомендации считаются по совместной встречаемости лайков без обращения к БД; пока граф
+ * не построен, они ищутся в БД. Изменения, сделанные во время перестройки, не теряются (см. {@link RebuildableState}).
+ * Граф — источник числа лайков для {@link PopularityIndex} и {@link FilmStatistics}: лайк в нём задаётся парой
+ * «фильм — пользователь», поэтому повторное применение того же изменения не меняет счётчиков.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeGraph {
+    /**
+     * Максимум соседей, просматриваемых с одной вершины. Для очень популярных фильмов берётся равномерная
+     * выборка лайкнувших, чтобы время ответа не росло с числом лайков.
+     */
+    static final int MAX_NEIGHBOURS = 1_000;
+
+    /**
+     * Ограничение общего числа шагов обхода на один запрос.
+     */
+    static final int MAX_VISITS = 200_000;
+
+    private final LikeRepository likeRepository;
+
+    private final RebuildableState<State> state =
+            new RebuildableState<>(new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>()));
+    private volatile boolean stale = true;
+
+    /**
+     * Строит граф из таблицы likes. При старте выполняется раньше индексов, которые берут из графа число лайков.
+     * Устаревшим граф считается только до первой успешной перестройки.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            State newState = state.rebuild(this::load);
+            stale = false;
+            log.info("Граф лайков построен, фильмов: {}, пользователей: {}",
+                    newState.usersByFilm.size(), newState.filmsByUser.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить граф лайков: {}", e.getMessage(), e);
+        }
+    }
+
+    public void addLike(long filmId, long userId) {
+        state.update(current -> {
+            current.usersByFilm.compute(filmId, (id, users) -> SortedLongArrays.insert(users, userId));
+            current.filmsByUser.compute(userId, (id, films) -> SortedLongArrays.insert(films, filmId));
+        });
+    }
+
+    public void removeLike(long filmId, long userId) {
+        state.update(current -> {
+            current.usersByFilm.compute(filmId, (id, users) -> SortedLongArrays.remove(users, userId));
+            current.filmsByUser.compute(userId, (id, films) -> SortedLongArrays.remove(films, filmId));
+        });
+    }
+
+    public long likeCount(long filmId) {
+        return state.get().usersByFilm.getOrDefault(filmId, SortedLongArrays.EMPTY).length;
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Фильмы, которые чаще всего лайкали те же пользователи, что и данный фильм.
+     *
+     * @return пустой Optional, если граф не построен или помечен как устаревший
+     */
+    public Optional<List<Long>> similarFilmIds(long filmId, int count) {
+        if (stale) {
+            return Optional.empty();
+        }
+        State current = state.get();
+        long[] users = current.usersByFilm.getOrDefault(filmId, SortedLongArrays.EMPTY);
+        Scores scores = new Scores();
+        int visits = 0;
+        int step = stepFor(users.length);
+        for (int i = 0; i < users.length && visits < MAX_VISITS; i += step) {
+            long[] films = current.filmsByUser.getOrDefault(users[i], SortedLongArrays.EMPTY);
+            for (long otherFilmId : films) {
+                if (otherFilmId != filmId) {
+                    scores.increment(otherFilmId);
+                }
+            }
+            visits += films.length;
+        }
+        return Optional.of(scores.top(count));
+    }
+
+    /**
+     * Фильмы, которые пользователь ещё не лайкал, ранжированные по числу совместных лайков
+     * с уже понравившимися ему фильмами.
+     *
+     * @return пустой Optional, если граф не построен или помечен как устаревший
+     */
+    public Optional<List<Long>> recommendedFilmIds(long userId, int count) {
+        if (stale) {
+            return Optional.empty();
+        }
+        State current = state.get();
+        long[] liked = current.filmsByUser.getOrDefault(userId, SortedLongArrays.EMPTY);
+        Scores scores = new Scores();
+        int visits = 0;
+        for (int i = 0; i < liked.length && visits < MAX_VISITS; i++) {
+            long[] users = current.usersByFilm.getOrDefault(liked[i], SortedLongArrays.EMPTY);
+            int step = stepFor(users.length);
+            for (int j = 0; j < users.length && visits < MAX_VISITS; j += step) {
+                if (users[j] == userId) {
+                    continue;
+                }
+                long[] films = current.filmsByUser.getOrDefault(users[j], SortedLongArrays.EMPTY);
+                for (long filmId : films) {
+                    if (!SortedLongArrays.contains(liked, filmId)) {
+                        scores.increment(filmId);
+                    }
+                }
+                visits += films.length;
+            }
+        }
+        return Optional.of(scores.top(count));
+    }
+
+    private static int stepFor(int neighbours) {
+        return Math.max(1, neighbours / MAX_NEIGHBOURS);
+    }
+
+    private State load() {
+        Map<Long, SortedLongArrays.Builder> usersByFilm = new HashMap<>();
+        Map<Long, SortedLongArrays.Builder> filmsByUser = new HashMap<>();
+        likeRepository.forEachLike((filmId, userId) -> {
+            usersByFilm.computeIfAbsent(filmId, id -> new SortedLongArrays.Builder()).add(userId);
+            filmsByUser.computeIfAbsent(userId, id -> new SortedLongArrays.Builder()).add(filmId);
+        });
+        return new State(build(usersByFilm), build(filmsByUser));
+    }
+
+    private static ConcurrentHashMap<Long, long[]> build(Map<Long, SortedLongArrays.Builder> builders) {
+        ConcurrentHashMap<Long, long[]> result = new ConcurrentHashMap<>(builders.size());
+        builders.forEach((id, builder) -> result.put(id, builder.build()));
+        return result;
+    }
+
+    private record State(ConcurrentHashMap<Long, long[]> usersByFilm, ConcurrentHashMap<Long, long[]> filmsByUser) {
+    }
+}
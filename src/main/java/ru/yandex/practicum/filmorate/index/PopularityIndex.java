@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Индекс популярности фильмов в памяти.
+ * Хранит упорядоченный по убыванию количества лайков набор фильмов и позволяет получить топ-K без обращения к БД.
+ * Кроме общего рейтинга ведутся такие же рейтинги для каждого жанра, года выхода и рейтинга MPA,
+ * поэтому топ-K с отбором по одному признаку читается так же, как без отбора.
+ * Заполняется из БД при старте и обновляется при добавлении/удалении лайков, создании и изменении фильма.
+ * Число лайков не меняется на ±1, а каждый раз берётся из {@link LikeGraph}, поэтому повторно применённое
+ * обновление не искажает рейтинг. Обновления одного фильма сериализуются через {@link ConcurrentHashMap#compute},
+ * общей блокировки нет. Периодическая перестройка не прерывает обслуживание и не теряет обновления —
+ * см. {@link RebuildableState}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityIndex {
+    private static final Comparator<Entry> RANKING_ORDER = Comparator
+            .comparingLong(Entry::score).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final FilmCatalogLoader catalogLoader;
+    private final LikeGraph likeGraph;
+
+    private final RebuildableState<State> state = new RebuildableState<>(new State());
+    private volatile boolean stale = true;
+
+    /**
+     * Строит индекс из БД и графа лайков. Пока идёт перестройка, запросы обслуживает прежний индекс, а изменения,
+     * сделанные за это время, переносятся в новый (см. {@link RebuildableState}). Устаревшим индекс
+     * считается только до первой успешной перестройки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            State newState = state.rebuild(this::load);
+            stale = false;
+            log.info("Индекс популярности построен, фильмов: {}, признаков для отбора: {}",
+                    newState.scores.size(), newState.facetRankings.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить индекс популярности: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Добавляет фильм в индекс или переносит его в рейтинги нового жанра, года и MPA после изменения.
+     * Пустой список жанров, как и в репозитории, оставляет прежние жанры.
+     */
+    public void register(Film film) {
+        state.update(current -> register(current, film));
+    }
+
+    private void register(State current, Film film) {
+        current.scores.compute(film.getId(), (id, oldScore) -> {
+            long score = oldScore == null ? likeGraph.likeCount(id) : oldScore;
+            Entry entry = new Entry(id, score);
+            List<Facet> oldFacets = current.facets.getOrDefault(id, List.of());
+            List<Facet> newFacets = facetsOf(film, oldFacets);
+            if (oldScore == null) {
+                current.ranking.add(entry);
+            }
+            for (Facet facet : newFacets) {
+                if (!oldFacets.contains(facet)) {
+                    current.facetRanking(facet).add(entry);
+                    current.facetSize(facet).incrementAndGet();
+                }
+            }
+            for (Facet facet : oldFacets) {
+                if (!newFacets.contains(facet)) {
+                    current.facetRanking(facet).remove(entry);
+                    current.facetSize(facet).decrementAndGet();
+                }
+            }
+            current.facets.put(id, newFacets);
+            return score;
+        });
+    }
+
+    /**
+     * Переносит фильм на место, соответствующее текущему числу его лайков в {@link LikeGraph}.
+     * Вызывается после изменения графа.
+     */
+    public void refresh(long filmId) {
+        state.update(current -> refresh(current, filmId));
+    }
+
+    public long score(long filmId) {
+        return state.get().scores.getOrDefault(filmId, 0L);
+    }
+
+    /**
+     * Возвращает ID самых популярных фильмов по убыванию количества лайков.
+     *
+     * @return пустой Optional, если индекс не построен или помечен как устаревший
+     */
+    public Optional<List<Long>> topFilmIds(int count) {
+        return topFilmIds(count, PopularFilmsFilter.NONE);
+    }
+
+    /**
+     * Возвращает ID самых популярных фильмов, подходящих под все условия отбора.
+     * Обходится рейтинг признака, у которого меньше всего фильмов (по счётчикам, без обхода рейтингов),
+     * остальные условия проверяются по признакам фильма.
+     *
+     * @return пустой Optional, если индекс не построен или помечен как устаревший
+     */
+    public Optional<List<Long>> topFilmIds(int count, PopularFilmsFilter filter) {
+        if (stale) {
+            return Optional.empty();
+        }
+        State current = state.get();
+        List<Facet> required = facetsOf(filter);
+        Collection<Entry> ranking = current.ranking;
+        if (!required.isEmpty()) {
+            Facet smallest = required.stream()
+                    .min(Comparator.comparingInt(current::sizeOf))
+                    .orElseThrow();
+            ranking = current.facetRankings.get(smallest);
+            if (ranking == null || current.sizeOf(smallest) == 0) {
+                return Optional.of(List.of());
+            }
+        }
+        List<Long> result = new ArrayList<>(count);
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (seen.add(entry.filmId())
+                    && current.facets.getOrDefault(entry.filmId(), List.of()).containsAll(required)) {
+                result.add(entry.filmId());
+            }
+        }
+        return Optional.of(result);
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    private void refresh(State current, long filmId) {
+        current.scores.compute(filmId, (id, oldScore) -> {
+            long score = oldScore == null ? 0 : oldScore;
+            long newScore = likeGraph.likeCount(id);
+            // Сначала добавляем новую запись, затем удаляем старую: читатель может увидеть фильм дважды,
+            // но никогда не потеряет его. Дубликаты отбрасываются в topFilmIds.
+            List<Collection<Entry>> rankings = new ArrayList<>();
+            rankings.add(current.ranking);
+            current.facets.getOrDefault(id, List.of()).forEach(facet -> rankings.add(current.facetRanking(facet)));
+            for (Collection<Entry> ranking : rankings) {
+                ranking.add(new Entry(id, newScore));
+                if (oldScore != null && newScore != score) {
+                    ranking.remove(new Entry(id, score));
+                }
+            }
+            return newScore;
+        });
+    }
+
+    private State load() {
+        State newState = new State();
+        catalogLoader.forEachFilmWithLikes(
+                (film, likes) -> newState.put(film.getId(), likes, facetsOf(film, List.of())));
+        return newState;
+    }
+
+    private static List<Facet> facetsOf(Film film, List<Facet> previous) {
+        List<Facet> facets = new ArrayList<>();
+        if (film.getReleaseDate() != null) {
+            facets.add(new Facet(FacetType.YEAR, film.getReleaseDate().getYear()));
+        }
+        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
+            film.getGenres().forEach(genre -> facets.add(new Facet(FacetType.GENRE, genre.getId())));
+        } else {
+            previous.stream().filter(facet -> facet.type() == FacetType.GENRE).forEach(facets::add);
+        }
+        if (film.getMpa() != null && film.getMpa().getId() != null) {
+            facets.add(new Facet(FacetType.MPA, film.getMpa().getId()));
+        }
+        return List.copyOf(new LinkedHashSet<>(facets));
+    }
+
+    private static List<Facet> facetsOf(PopularFilmsFilter filter) {
+        List<Facet> facets = new ArrayList<>();
+        if (filter.year() != null) {
+            facets.add(new Facet(FacetType.YEAR, filter.year()));
+        }
+        if (filter.genreId() != null) {
+            facets.add(new Facet(FacetType.GENRE, filter.genreId()));
+        }
+        if (filter.mpaId() != null) {
+            facets.add(new Facet(FacetType.MPA, filter.mpaId()));
+        }
+        return facets;
+    }
+
+    private enum FacetType {
+        YEAR,
+        GENRE,
+        MPA
+    }
+
+    private record Facet(FacetType type, long value) {
+    }
+
+    private record Entry(long filmId, long score) {
+    }
+
+    private static final class State {
+        private final ConcurrentHashMap<Long, Long> scores = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+        private final ConcurrentHashMap<Long, List<Facet>> facets = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Facet, ConcurrentSkipListSet<Entry>> facetRankings = new ConcurrentHashMap<>();
+        /**
+         * Число фильмов с признаком. Размер {@link ConcurrentSkipListSet} считается обходом всего набора,
+         * поэтому для выбора самого узкого признака ведутся отдельные счётчики.
+         */
+        private final ConcurrentHashMap<Facet, AtomicInteger> facetSizes = new ConcurrentHashMap<>();
+
+        private ConcurrentSkipListSet<Entry> facetRanking(Facet facet) {
+            return facetRankings.computeIfAbsent(facet, key -> new ConcurrentSkipListSet<>(RANKING_ORDER));
+        }
+
+        private AtomicInteger facetSize(Facet facet) {
+            return facetSizes.computeIfAbsent(facet, key -> new AtomicInteger());
+        }
+
+        private int sizeOf(Facet facet) {
+            AtomicInteger size = facetSizes.get(facet);
+            return size == null ? 0 : size.get();
+        }
+
+        /**
+         * Заполнение при построении индекса, до его публикации.
+         */
+        private void put(long filmId, long score, List<Facet> filmFacets) {
+            Entry entry = new Entry(filmId, score);
+            scores.put(filmId, score);
+            ranking.add(entry);
+            facets.put(filmId, filmFacets);
+            filmFacets.forEach(facet -> {
+                facetRanking(facet).add(entry);
+                facetSize(facet).incrementAndGet();
+            });
+        }
+    }
+}
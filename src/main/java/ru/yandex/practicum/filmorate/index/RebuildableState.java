@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Состояние индекса в памяти, которое перестраивается из БД без остановки чтения и обновлений.
+ * Пока новое состояние читается из БД, читатели работают с текущим, а каждое изменение применяется
+ * к текущему и записывается в журнал. Перед подменой журнал под блокировкой записи применяется к новому
+ * состоянию, поэтому изменения, сделанные во время чтения БД, не теряются.
+ * <p>
+ * Изменение из журнала может оказаться и в прочитанных данных (зафиксировано в БД до чтения, а применено
+ * к индексу после начала перестройки), поэтому изменения должны быть идемпотентными: устанавливать значение,
+ * а не прибавлять разницу к прежнему.
+ */
+final class RebuildableState<S> {
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile S state;
+    private Queue<Consumer<S>> changeLog;
+
+    RebuildableState(S initial) {
+        this.state = initial;
+    }
+
+    S get() {
+        return state;
+    }
+
+    /**
+     * Применяет изменение к текущему состоянию. Изменения выполняются параллельно друг с другом,
+     * сериализовать изменения одного ключа должно само состояние. Повторное применение того же изменения
+     * не должно менять состояние.
+     */
+    void update(Consumer<S> change) {
+        swapLock.readLock().lock();
+        try {
+            change.accept(state);
+            if (changeLog != null) {
+                changeLog.add(change);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Строит новое состояние загрузчиком и подменяет им текущее. Перестройки выполняются по одной.
+     */
+    synchronized S rebuild(Supplier<S> loader) {
+        Queue<Consumer<S>> log = new ConcurrentLinkedQueue<>();
+        swapLock.writeLock().lock();
+        try {
+            changeLog = log;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        try {
+            S newState = loader.get();
+            swapLock.writeLock().lock();
+            try {
+                log.forEach(change -> change.accept(newState));
+                state = newState;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            return newState;
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                changeLog = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Счётчик совпадений для кандидатов в рекомендации.
+ * Отбор лучших выполняется кучей размера count, без сортировки всех кандидатов.
+ */
+final class Scores {
+    private static final Comparator<Map.Entry<Long, int[]>> BEST_FIRST = Comparator
+            .<Map.Entry<Long, int[]>>comparingInt(entry -> entry.getValue()[0]).reversed()
+            .thenComparingLong(Map.Entry::getKey);
+
+    private final Map<Long, int[]> counts = new HashMap<>();
+
+    void increment(long id) {
+        counts.computeIfAbsent(id, key -> new int[1])[0]++;
+    }
+
+    /**
+     * Добавляет к текущим счетам счета другого накопителя; используется при параллельном обходе.
+     */
+    Scores merge(Scores other) {
+        other.counts.forEach((id, count) -> counts.computeIfAbsent(id, key -> new int[1])[0] += count[0]);
+        return this;
+    }
+
+    boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    /**
+     * Возвращает ID с наибольшим счётом; при равенстве меньший ID идёт первым.
+     */
+    List<Long> top(int count) {
+        if (count <= 0 || counts.isEmpty()) {
+            return List.of();
+        }
+        PriorityQueue<Map.Entry<Long, int[]>> heap = new PriorityQueue<>(count + 1, BEST_FIRST.reversed());
+        for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, int[]>> best = new ArrayList<>(heap);
+        best.sort(BEST_FIRST);
+        return best.stream().map(Map.Entry::getKey).toList();
+    }
+}
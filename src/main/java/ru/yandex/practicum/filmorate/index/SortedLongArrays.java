@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными массивами long, которые используются как компактные списки смежности.
+ * Массивы не изменяются на месте: вставка и удаление возвращают новую копию, поэтому опубликованный
+ * массив можно читать без блокировок.
+ */
+final class SortedLongArrays {
+    static final long[] EMPTY = new long[0];
+
+    /**
+     * Во сколько раз больший массив должен превосходить меньший, чтобы слиянию предпочесть галопирующий поиск.
+     * Порог выведен из оценок O(n + m) для слияния и O(n log m) для поиска, замерами он не подбирался;
+     * проверить его можно бенчмарком {@code FriendRepositoryBenchmark.intersectFriendLists}.
+     */
+    static final int GALLOP_RATIO = 32;
+
+    private SortedLongArrays() {
+    }
+
+    static long[] insert(long[] values, long value) {
+        if (values == null) {
+            return new long[]{value};
+        }
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        int insertAt = -position - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return result;
+    }
+
+    /**
+     * Удаляет значение из массива.
+     *
+     * @return новый массив без значения или {@code null}, если массив стал пустым
+     */
+    static long[] remove(long[] values, long value) {
+        if (values == null) {
+            return null;
+        }
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    static boolean contains(long[] values, long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов. Для массивов сопоставимого размера используется слияние,
+     * при сильной разнице размеров — галопирующий поиск элементов меньшего массива в большем.
+     * Первый проход только считает совпадения, поэтому память выделяется один раз под точный результат.
+     */
+    static long[] intersect(long[] first, long[] second) {
+        long[] smaller = first.length <= second.length ? first : second;
+        long[] larger = smaller == first ? second : first;
+        if (smaller.length == 0) {
+            return EMPTY;
+        }
+        boolean gallop = larger.length / smaller.length >= GALLOP_RATIO;
+        int size = gallop ? gallopIntersect(smaller, larger, null) : mergeIntersect(smaller, larger, null);
+        if (size == 0) {
+            return EMPTY;
+        }
+        long[] result = new long[size];
+        if (gallop) {
+            gallopIntersect(smaller, larger, result);
+        } else {
+            mergeIntersect(smaller, larger, result);
+        }
+        return result;
+    }
+
+    private static int mergeIntersect(long[] first, long[] second, long[] out) {
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[size] = first[i];
+                }
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static int gallopIntersect(long[] smaller, long[] larger, long[] out) {
+        int low = 0;
+        int size = 0;
+        for (long value : smaller) {
+            int bound = 1;
+            while (low + bound < larger.length && larger[low + bound] < value) {
+                bound <<= 1;
+            }
+            int position = Arrays.binarySearch(larger, low, Math.min(low + bound + 1, larger.length), value);
+            if (position >= 0) {
+                if (out != null) {
+                    out[size] = value;
+                }
+                size++;
+                low = position + 1;
+            } else {
+                low = -position - 1;
+            }
+            if (low >= larger.length) {
+                break;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Накопитель значений при начальной загрузке: добавление за амортизированное O(1), сортировка один раз в конце.
+     */
+    static final class Builder {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] build() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Результат пакетной загрузки.
+ * Содержит число созданных и обновлённых (при загрузке с семантикой upsert) объектов, ошибки по отдельным
+ * элементам и показатели производительности. ID сохранённых объектов не возвращаются: при загрузке миллионов
+ * строк их список был бы размером со всю загрузку.
+ * aborted — загрузка остановлена на нечитаемых входных данных, элементы после них не получены.
+ */
+@Data
+@AllArgsConstructor
+public class BatchImportResult {
+    private final int received;
+    private final int created;
+    private final int updated;
+    private final List<BatchItemError> errors;
+    private final boolean aborted;
+    private final long durationMs;
+    private final long itemsPerSecond;
+
+    public static BatchImportResult of(int received, int created, int updated, List<BatchItemError> errors,
+                                       boolean aborted, long startNanos) {
+        long durationNanos = Math.max(1, System.nanoTime() - startNanos);
+        long itemsPerSecond = received * 1_000_000_000L / durationNanos;
+        return new BatchImportResult(received, created, updated, errors, aborted, durationNanos / 1_000_000,
+                itemsPerSecond);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Ошибка обработки одного элемента пакетного запроса.
+ * index — порядковый номер элемента во входных данных, начиная с 0.
+ */
+@Data
+@AllArgsConstructor
+public class BatchItemError {
+    private final int index;
+    private final String error;
+}
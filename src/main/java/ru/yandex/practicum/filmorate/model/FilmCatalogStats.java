@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Ответ {@code GET /films/stats}: статистика всего каталога и её разбивка по жанрам и рейтингам MPA.
+ * Фильм с несколькими жанрами учитывается в каждом из них.
+ */
+@Data
+@AllArgsConstructor
+public class FilmCatalogStats {
+    private final FilmGroupStats total;
+    private final List<FilmGroupStats> byGenre;
+    private final List<FilmGroupStats> byMpa;
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.SortedMap;
+
+/**
+ * Статистика группы фильмов (жанра, рейтинга MPA или всего каталога): число фильмов, сумма лайков,
+ * средняя продолжительность и распределение по годам выхода. У каталога в целом id и name не заполняются.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FilmGroupStats {
+    private final Long id;
+    private final String name;
+    private final long films;
+    private final long likes;
+    private final double averageDuration;
+    private final SortedMap<Integer, Long> releaseYears;
+}
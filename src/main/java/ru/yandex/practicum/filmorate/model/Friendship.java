@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Связь дружбы: пользователь userId добавил в друзья пользователя friendId.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Friendship {
+    private Long userId;
+    private Long friendId;
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Необязательные условия отбора популярных фильмов: жанр, год выхода и рейтинг MPA.
+ * Незаданное условие равно {@code null}.
+ */
+public record PopularFilmsFilter(Long genreId,
+                                 Integer year,
+                                 Long mpaId) {
+    public static final PopularFilmsFilter NONE = new PopularFilmsFilter(null, null, null);
+
+    public boolean isEmpty() {
+        return genreId == null && year == null && mpaId == null;
+    }
+
+    public boolean matches(Film film) {
+        return (genreId == null || film.getGenres() != null
+                && film.getGenres().stream().anyMatch(genre -> genreId.equals(genre.getId())))
+                && (year == null || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year)
+                && (mpaId == null || film.getMpa() != null && mpaId.equals(film.getMpa().getId()));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import org.springframework.dao.DataAccessException;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
+import ru.yandex.practicum.filmorate.model.BatchItemError;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Общий цикл пакетной загрузки: поэлементная проверка, сохранение пачками фиксированного размера и сбор ошибок.
+ * Проверки, требующие обращения к БД, выполняются сразу для всей пачки (chunkValidator),
+ * он возвращает позиции невалидных элементов пачки с текстом ошибки.
+ * Если пачка не сохранилась из-за ошибки БД, её элементы сохраняются по одному,
+ * чтобы ошибка одного элемента не отменяла загрузку остальных.
+ * <p>
+ * Элемент, который не удалось преобразовать в объект (например, поле неверного типа), попадает в ошибки,
+ * а чтение продолжается со следующего. Если же сломан сам поток (синтаксическая ошибка JSON, обрыв соединения),
+ * позиция следующего элемента неизвестна: загрузка останавливается, уже прочитанные элементы сохраняются,
+ * а в результате выставляется признак aborted.
+ */
+class BatchImporter<T> {
+    private final int chunkSize;
+    private final Consumer<T> validator;
+    private final Function<List<T>, Map<Integer, String>> chunkValidator;
+    private final ToIntFunction<List<T>> saver;
+
+    private final List<BatchItemError> errors = new ArrayList<>();
+    private int created;
+    private int updated;
+
+    BatchImporter(int chunkSize, Consumer<T> validator, Consumer<List<T>> saver) {
+        this(chunkSize, validator, chunk -> Map.of(), saver);
+    }
+
+    BatchImporter(int chunkSize, Consumer<T> validator, Function<List<T>, Map<Integer, String>> chunkValidator,
+                  Consumer<List<T>> saver) {
+        this(chunkSize, chunkValidator, validator, chunk -> {
+            saver.accept(chunk);
+            return 0;
+        });
+    }
+
+    private BatchImporter(int chunkSize, Function<List<T>, Map<Integer, String>> chunkValidator,
+                          Consumer<T> validator, ToIntFunction<List<T>> saver) {
+        this.chunkSize = chunkSize;
+        this.validator = validator;
+        this.chunkValidator = chunkValidator;
+        this.saver = saver;
+    }
+
+    /**
+     * Загрузка с семантикой upsert: saver возвращает, сколько элементов пачки обновили существующие объекты,
+     * остальные считаются созданными.
+     */
+    static <T> BatchImporter<T> upserting(int chunkSize, Consumer<T> validator, ToIntFunction<List<T>> saver) {
+        return new BatchImporter<>(chunkSize, chunk -> Map.of(), validator, saver);
+    }
+
+    BatchImportResult run(Iterator<T> items) {
+        long startNanos = System.nanoTime();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+        boolean aborted = false;
+        while (true) {
+            int itemIndex = index;
+            T item;
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                index++;
+                item = items.next();
+            } catch (RuntimeException e) {
+                boolean itemSkipped = e instanceof RuntimeJsonMappingException && index > itemIndex;
+                index = itemIndex + 1;
+                if (itemSkipped) {
+                    errors.add(new BatchItemError(itemIndex, e.getMessage()));
+                    continue;
+                }
+                aborted = true;
+                errors.add(new BatchItemError(itemIndex,
+                        "Не удалось прочитать входные данные, загрузка остановлена: " + e.getMessage()));
+                break;
+            }
+            try {
+                validator.accept(item);
+                chunk.add(item);
+                chunkIndexes.add(itemIndex);
+            } catch (RuntimeException e) {
+                errors.add(new BatchItemError(itemIndex, e.getMessage()));
+            }
+            if (chunk.size() == chunkSize) {
+                saveChunk(chunk, chunkIndexes);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        saveChunk(chunk, chunkIndexes);
+        errors.sort(Comparator.comparingInt(BatchItemError::getIndex));
+        return BatchImportResult.of(index, created, updated, errors, aborted, startNanos);
+    }
+
+    private void saveChunk(List<T> items, List<Integer> itemIndexes) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<Integer, String> invalid = chunkValidator.apply(items);
+        List<T> chunk = new ArrayList<>(items.size());
+        List<Integer> chunkIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            String error = invalid.get(i);
+            if (error == null) {
+                chunk.add(items.get(i));
+                chunkIndexes.add(itemIndexes.get(i));
+            } else {
+                errors.add(new BatchItemError(itemIndexes.get(i), error));
+            }
+        }
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            record(chunk.size(), saver.applyAsInt(chunk));
+        } catch (DataAccessException chunkError) {
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    record(1, saver.applyAsInt(List.of(chunk.get(i))));
+                } catch (DataAccessException e) {
+                    errors.add(new BatchItemError(chunkIndexes.get(i), e.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+    }
+
+    private void record(int saved, int chunkUpdated) {
+        updated += chunkUpdated;
+        created += saved - chunkUpdated;
+    }
+}
@@ -5,10 +5,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmStatistics;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmCatalogStats;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
 import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
 
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Сервис для операций с фильмами.
@@ -18,18 +29,51 @@ import java.util.Collection;
 @Service
 @RequiredArgsConstructor
 public class FilmService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
     private final ValidationService validationService;
     private final FilmRepository filmRepository;
     private final LikeService likeService;
+    private final PopularityIndex popularityIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmStatistics filmStatistics;
 
     public Collection<Film> findAllFilms() {
         log.info("Попытка получения всех фильмов");
         return filmRepository.findAllFilms();
     }
 
+    public List<Film> findFilmsPage(Long afterId, Integer limit) {
+        log.info("Попытка получения страницы фильмов: after={}, limit={}", afterId, limit);
+        validationService.validatePage(afterId, limit, MAX_PAGE_SIZE);
+        return filmRepository.findFilmsPage(afterId == null ? 0 : afterId, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    /**
+     * Передаёт все фильмы потребителю, читая их из БД страницами фиксированного размера.
+     * В памяти одновременно находится не больше одной страницы.
+     */
+    public void forEachFilm(Consumer<Film> consumer) {
+        log.info("Потоковая выгрузка всех фильмов.");
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = filmRepository.findFilmsPage(afterId, EXPORT_CHUNK_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == EXPORT_CHUNK_SIZE);
+    }
+
     public Film getFilmById(Long filmId) {
         log.info("Попытка получения фильма по ID: {}", filmId);
-        validationService.validateFilmExists(filmId);
+        if (filmId == null) {
+            throw new ValidationException("ID фильма не может быть null");
+        }
         return filmRepository.getFilmById(filmId)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
     }
@@ -38,27 +82,99 @@ public class FilmService {
         log.info("Попытка создания фильма: {}", film.getName());
         validationService.validateFilm(film);
         Film createdFilm = filmRepository.createFilm(film);
+        popularityIndex.register(createdFilm);
+        filmSearchIndex.index(createdFilm);
+        filmStatistics.register(createdFilm);
         log.info("Создан фильм с ID: {}", createdFilm.getId());
         return createdFilm;
     }
 
+    /**
+     * Пакетно создаёт фильмы. Каждый элемент проверяется отдельно, невалидные элементы попадают в список ошибок
+     * и не мешают сохранению остальных. Валидные фильмы сохраняются пакетами по IMPORT_CHUNK_SIZE штук.
+     */
+    public BatchImportResult createFilms(Iterator<Film> films) {
+        log.info("Попытка пакетного создания фильмов");
+        BatchImportResult result = new BatchImporter<Film>(IMPORT_CHUNK_SIZE,
+                film -> {
+                    validationService.validateConstraints(film);
+                    validationService.validateFilm(film);
+                },
+                this::saveFilmChunk)
+                .run(films);
+        log.info("Пакетное создание фильмов: получено {}, создано {}, ошибок {}, {} мс ({} фильмов/с)",
+                result.getReceived(), result.getCreated(), result.getErrors().size(), result.getDurationMs(),
+                result.getItemsPerSecond());
+        return result;
+    }
+
+    private void saveFilmChunk(List<Film> chunk) {
+        for (Film film : filmRepository.createFilms(chunk)) {
+            popularityIndex.register(film);
+            filmSearchIndex.index(film);
+            filmStatistics.register(film);
+        }
+    }
+
     public Film updateFilm(Film newFilm) {
         log.info("Попытка обновления фильма с ID: {}", newFilm.getId());
-        if (filmRepository.getFilmById(newFilm.getId()).isEmpty()) {
+        if (!filmRepository.existsById(newFilm.getId())) {
             throw new NotFoundException("Фильм с id=" + newFilm.getId() + " не найден");
         }
         validationService.validateFilm(newFilm);
         Film updatedFilm = filmRepository.updateFilm(newFilm);
+        popularityIndex.register(updatedFilm);
+        filmSearchIndex.index(updatedFilm);
+        filmStatistics.register(updatedFilm);
         log.info("Фильм с ID {} обновлен", newFilm.getId());
         return updatedFilm;
     }
 
-    public Collection<Film> getPopularFilms(int count) {
-        log.info("Попытка получения популярных фильмов в количестве {} штук", count);
+    /**
+     * Популярные фильмы с необязательным отбором по жанру, году выхода и рейтингу MPA.
+     * Пока индекс популярности не построен, запрос выполняется в БД.
+     */
+    public Collection<Film> getPopularFilms(int count, PopularFilmsFilter filter) {
+        log.info("Попытка получения популярных фильмов в количестве {} штук, отбор: {}", count, filter);
         if (count <= 0) {
             throw new ValidationException("Количество фильмов должно быть положительным числом.");
         }
-        return filmRepository.getPopularFilms(count);
+        return popularityIndex.topFilmIds(count, filter)
+                .<Collection<Film>>map(filmRepository::getFilmsByIds)
+                .orElseGet(() -> filmRepository.getPopularFilms(count, filter));
+    }
+
+    /**
+     * Ищет фильмы по словам запроса в названии и/или описании через {@link FilmSearchIndex}.
+     *
+     * @param by поля поиска: {@code title}, {@code description}
+     */
+    public List<Film> searchFilms(String query, List<String> by, int count) {
+        log.info("Поиск фильмов: query={}, by={}, count={}", query, by, count);
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым.");
+        }
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом.");
+        }
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String field : by) {
+            switch (field.trim().toLowerCase()) {
+                case "title" -> fields.add(FilmSearchIndex.Field.TITLE);
+                case "description" -> fields.add(FilmSearchIndex.Field.DESCRIPTION);
+                default -> throw new ValidationException("Неизвестное поле поиска: " + field
+                        + ". Допустимые значения: title, description");
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new ValidationException("Не указаны поля поиска.");
+        }
+        return filmRepository.getFilmsByIds(filmSearchIndex.search(query, fields, count));
+    }
+
+    public FilmCatalogStats getStats() {
+        log.info("Попытка получения статистики каталога");
+        return filmStatistics.stats();
     }
 
     public void addLike(Long filmId, Long userId) {
@@ -4,21 +4,36 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.friend.FriendRepository;
+import ru.yandex.practicum.filmorate.storage.user.UserRepository;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис для управления дружескими связями.
  * Проверяет валидность запросов на дружбу, обрабатывает добавление/удаление друзей, поиск общих друзей.
+ * Изменения дружбы дублируются в граф дружбы в памяти, по которому строятся рекомендации друзей.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FriendService {
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
     private final FriendRepository friendRepository;
+    private final UserRepository userRepository;
     private final ValidationService validationService;
+    private final FriendGraph friendGraph;
 
     public void addFriend(Long userId, Long friendId) {
         log.info("Попытка добавления друзья: пользователь {} добавляет {}", userId, friendId);
@@ -27,13 +42,64 @@ public class FriendService {
             throw new ValidationException("Пользователь не может добавить себя в друзья.");
         }
         friendRepository.addFriend(userId, friendId);
+        friendGraph.addFriend(userId, friendId);
         log.info("Пользователь {} отправил запрос на дружбу пользователю {}", userId, friendId);
     }
 
+    /**
+     * Пакетно добавляет связи дружбы. Существование пользователей проверяется одним запросом на пачку,
+     * повторная загрузка уже существующих связей не считается ошибкой.
+     */
+    public BatchImportResult addFriends(Iterator<Friendship> friendships) {
+        log.info("Попытка пакетной загрузки связей дружбы");
+        BatchImportResult result = new BatchImporter<Friendship>(IMPORT_CHUNK_SIZE,
+                this::validateFriendship,
+                this::findFriendshipsWithMissingUsers,
+                chunk -> {
+                    friendRepository.addFriends(chunk);
+                    chunk.forEach(friendship ->
+                            friendGraph.addFriend(friendship.getUserId(), friendship.getFriendId()));
+                })
+                .run(friendships);
+        log.info("Пакетная загрузка связей дружбы: получено {}, сохранено {}, ошибок {}, {} мс ({} связей/с)",
+                result.getReceived(), result.getCreated(), result.getErrors().size(), result.getDurationMs(),
+                result.getItemsPerSecond());
+        return result;
+    }
+
+    private void validateFriendship(Friendship friendship) {
+        if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null) {
+            throw new ValidationException("ID пользователей не могут быть null");
+        }
+        if (friendship.getUserId().equals(friendship.getFriendId())) {
+            throw new ValidationException("Пользователь не может добавить себя в друзья.");
+        }
+    }
+
+    private Map<Integer, String> findFriendshipsWithMissingUsers(List<Friendship> chunk) {
+        Set<Long> userIds = new HashSet<>();
+        chunk.forEach(friendship -> {
+            userIds.add(friendship.getUserId());
+            userIds.add(friendship.getFriendId());
+        });
+        Set<Long> missing = validationService.findMissingUserIds(userIds);
+        Map<Integer, String> invalid = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Friendship friendship = chunk.get(i);
+            if (missing.contains(friendship.getUserId())) {
+                invalid.put(i, "Пользователь с ID " + friendship.getUserId() + " не найден");
+            } else if (missing.contains(friendship.getFriendId())) {
+                invalid.put(i, "Пользователь с ID " + friendship.getFriendId() + " не найден");
+            }
+        }
+        return invalid;
+    }
+
     public void removeFriend(Long userId, Long friendId) {
         log.info("Пользователь {} удалил пользователя {} из друзей", userId, friendId);
         validationService.validateUsersExist(userId, friendId);
         friendRepository.removeFriend(userId, friendId);
+        friendGraph.removeFriend(userId, friendId);
         log.info("Пользователь {} удалил пользователя {} из друзей", userId, friendId);
     }
 
@@ -43,9 +109,28 @@ public class FriendService {
         return friendRepository.getFriends(userId);
     }
 
+    /**
+     * Общие друзья считаются пересечением списков в графе дружбы, пользователи загружаются одним запросом.
+     * Пока граф не построен, общие друзья ищутся в БД.
+     */
     public Collection<User> getCommonFriends(Long userId1, Long userId2) {
         log.info("Получение общих друзей пользователей {} и {}", userId1, userId2);
         validationService.validateUsersExist(userId1, userId2);
-        return friendRepository.getCommonFriends(userId1, userId2);
+        return friendGraph.commonFriendIds(userId1, userId2)
+                .<Collection<User>>map(userRepository::getUsersByIds)
+                .orElseGet(() -> friendRepository.getCommonFriends(userId1, userId2));
+    }
+
+    /**
+     * Рекомендует друзей друзей пользователя по убыванию числа общих друзей.
+     * Ранжирование выполняется по графу дружбы в памяти, пользователи загружаются одним запросом.
+     */
+    public Collection<User> getFriendSuggestions(Long userId, int count) {
+        log.info("Получение {} рекомендаций друзей для пользователя {}", count, userId);
+        if (count <= 0) {
+            throw new ValidationException("Количество пользователей должно быть положительным числом.");
+        }
+        validationService.validateUserExists(userId);
+        return userRepository.getUsersByIds(friendGraph.suggestionIds(userId, count));
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
@@ -19,14 +20,15 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreRepository genreRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public Genre findGenreById(Long genreId) {
-        return genreRepository.findGenreById(genreId)
+        return referenceDataCache.findGenreById(genreId)
                 .orElseThrow(() -> new NotFoundException("Жанр с ID: " + genreId + " не найден."));
     }
 
     public List<Genre> findAllGenres() {
-        return genreRepository.findAllGenres();
+        return referenceDataCache.findAllGenres();
     }
 
     public Set<Genre> findGenreByFilmId(Long filmId) {
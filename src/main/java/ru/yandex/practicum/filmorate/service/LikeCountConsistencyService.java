@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.index.FilmStatistics;
+import ru.yandex.practicum.filmorate.index.LikeGraph;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+
+/**
+ * Сервис поддержки счётчика лайков films.like_count.
+ * При старте приложения заполняет счётчик по таблице likes, затем периодически проверяет его согласованность
+ * и перестраивает граф лайков, а после него — индекс популярности и статистику каталога, которые берут число лайков
+ * из графа.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikeCountConsistencyService {
+    private final LikeRepository likeRepository;
+    private final LikeGraph likeGraph;
+    private final PopularityIndex popularityIndex;
+    private final FilmStatistics filmStatistics;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLikeCounts() {
+        int updated = likeRepository.repairLikeCounts();
+        log.info("Заполнение счётчика лайков завершено, обновлено фильмов: {}", updated);
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.likes.consistency-check-interval-ms:3600000}",
+            fixedDelayString = "${filmorate.likes.consistency-check-interval-ms:3600000}")
+    public void checkLikeCounts() {
+        int repaired = likeRepository.repairLikeCounts();
+        if (repaired > 0) {
+            log.warn("Счётчик лайков расходился с таблицей likes у {} фильмов, значения исправлены", repaired);
+        }
+        likeGraph.rebuild();
+        popularityIndex.rebuild();
+        filmStatistics.rebuild();
+    }
+}
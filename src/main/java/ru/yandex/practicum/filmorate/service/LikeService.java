@@ -1,23 +1,66 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.index.FilmStatistics;
+import ru.yandex.practicum.filmorate.index.LikeGraph;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.like.LikeChange;
 import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+import ru.yandex.practicum.filmorate.storage.like.LikesAppliedEvent;
 
 /**
  * Сервис для управления лайками фильмов.
- * Делегирует операции добавления/удаления лайков в репозиторий.
+ * Делегирует операции добавления/удаления лайков в репозиторий и обновляет граф лайков, затем — взятым из него
+ * числом лайков — индекс популярности и статистику каталога, а также список лайков фильма в кэше.
+ * При отложенной записи лайков те же обновления выполняются по {@link LikesAppliedEvent} после фиксации пачки.
  */
 @Service
 @RequiredArgsConstructor
 public class LikeService {
     private final LikeRepository likeRepository;
+    private final PopularityIndex popularityIndex;
+    private final LikeGraph likeGraph;
+    private final FilmStatistics filmStatistics;
+    private final EntityCache<Long, Film> filmCache;
 
     public void addLike(Long filmId, Long userId) {
-        likeRepository.addLike(filmId, userId);
+        if (likeRepository.addLike(filmId, userId)) {
+            likeAdded(filmId, userId);
+        }
     }
 
     public void removeLike(Long filmId, Long userId) {
-        likeRepository.removeLike(filmId, userId);
+        if (likeRepository.removeLike(filmId, userId)) {
+            likeRemoved(filmId, userId);
+        }
+    }
+
+    @EventListener
+    public void onLikesApplied(LikesAppliedEvent event) {
+        for (LikeChange change : event.changes()) {
+            if (change.liked()) {
+                likeAdded(change.filmId(), change.userId());
+            } else {
+                likeRemoved(change.filmId(), change.userId());
+            }
+        }
+    }
+
+    private void likeAdded(Long filmId, Long userId) {
+        likeGraph.addLike(filmId, userId);
+        popularityIndex.refresh(filmId);
+        filmStatistics.refreshLikes(filmId);
+        filmCache.patch(filmId, film -> film.getLikes().add(userId));
+    }
+
+    private void likeRemoved(Long filmId, Long userId) {
+        likeGraph.removeLike(filmId, userId);
+        popularityIndex.refresh(filmId);
+        filmStatistics.refreshLikes(filmId);
+        filmCache.patch(filmId, film -> film.getLikes().remove(userId));
     }
 }
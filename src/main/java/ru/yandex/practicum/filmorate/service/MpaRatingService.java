@@ -3,9 +3,9 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaRepository;
 
 import java.util.List;
 
@@ -17,14 +17,14 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class MpaRatingService {
-    private final MpaRepository mpaRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     public MpaRating findMpaById(Long mpaId) {
-        return mpaRepository.findMpaById(mpaId)
+        return referenceDataCache.findMpaById(mpaId)
                 .orElseThrow(() -> new NotFoundException("Рейтинг с таким ID: " + mpaId + " не найден."));
     }
 
     public List<MpaRating> findAllMpa() {
-        return mpaRepository.findAllMpa();
+        return referenceDataCache.findAllMpa();
     }
 }
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.LikeGraph;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сервис рекомендаций фильмов по совместной встречаемости лайков.
+ * Ранжирование выполняется по графу лайков в памяти, из БД одним запросом загружаются только итоговые фильмы.
+ * Пока граф не построен, фильмы ранжируются запросом к таблице likes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationService {
+    private final LikeGraph likeGraph;
+    private final LikeRepository likeRepository;
+    private final FilmRepository filmRepository;
+    private final ValidationService validationService;
+
+    public Collection<Film> getSimilarFilms(Long filmId, int count) {
+        log.info("Попытка получения {} фильмов, похожих на фильм {}", count, filmId);
+        validateCount(count);
+        validationService.validateFilmExists(filmId);
+        return loadFilms(likeGraph.similarFilmIds(filmId, count)
+                .orElseGet(() -> likeRepository.findSimilarFilmIds(filmId, count)));
+    }
+
+    public Collection<Film> getRecommendations(Long userId, int count) {
+        log.info("Попытка получения {} рекомендаций для пользователя {}", count, userId);
+        validateCount(count);
+        validationService.validateUserExists(userId);
+        return loadFilms(likeGraph.recommendedFilmIds(userId, count)
+                .orElseGet(() -> likeRepository.findRecommendedFilmIds(userId, count)));
+    }
+
+    private Collection<Film> loadFilms(List<Long> filmIds) {
+        return filmIds.isEmpty() ? List.of() : filmRepository.getFilmsByIds(filmIds);
+    }
+
+    private void validateCount(int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным числом.");
+        }
+    }
+}
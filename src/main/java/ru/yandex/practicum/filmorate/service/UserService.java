@@ -5,10 +5,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserRepository;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Сервис для работы с пользователями.
@@ -18,6 +24,10 @@ import java.util.Collection;
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
     private final UserRepository userRepository;
     private final ValidationService validationService;
 
@@ -26,6 +36,17 @@ public class UserService {
         return userRepository.findAllUsers();
     }
 
+    public List<User> findUsersPage(Long afterId, Integer limit) {
+        log.info("Попытка получения страницы пользователей: after={}, limit={}", afterId, limit);
+        validationService.validatePage(afterId, limit, MAX_PAGE_SIZE);
+        return userRepository.findUsersPage(afterId == null ? 0 : afterId, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    public void forEachUser(Consumer<User> consumer) {
+        log.info("Потоковая выгрузка всех пользователей.");
+        userRepository.forEachUser(consumer);
+    }
+
     public User getUserById(Long userId) {
         log.info("Попытка получения пользователя по ID: {}", userId);
         if (userId == null) {
@@ -45,6 +66,39 @@ public class UserService {
         return createdUser;
     }
 
+    /**
+     * Пакетно создаёт или обновляет пользователей (upsert по логину).
+     * Невалидные элементы попадают в список ошибок и не мешают сохранению остальных.
+     */
+    public BatchImportResult createUsers(Iterator<User> users) {
+        log.info("Попытка пакетной загрузки пользователей");
+        BatchImportResult result = BatchImporter.<User>upserting(IMPORT_CHUNK_SIZE,
+                user -> {
+                    validationService.validateConstraints(user);
+                    if (user.getName() == null || user.getName().isBlank()) {
+                        user.setName(user.getLogin());
+                    }
+                },
+                this::upsertUserChunk)
+                .run(users);
+        log.info("Пакетная загрузка пользователей: получено {}, создано {}, обновлено {}, ошибок {}, {} мс "
+                        + "({} пользователей/с)", result.getReceived(), result.getCreated(), result.getUpdated(),
+                result.getErrors().size(), result.getDurationMs(), result.getItemsPerSecond());
+        return result;
+    }
+
+    /**
+     * Пользователь считается обновлённым, если существовал до загрузки пачки. Повтор логина внутри пачки
+     * обновляет только что созданного пользователя и тоже учитывается как обновление.
+     */
+    private int upsertUserChunk(List<User> chunk) {
+        Set<Long> existingIds = userRepository.upsertUsers(chunk);
+        Set<Long> createdIds = new HashSet<>();
+        return (int) chunk.stream()
+                .filter(user -> existingIds.contains(user.getId()) || !createdIds.add(user.getId()))
+                .count();
+    }
+
     public User updateUser(User newUser) {
         log.info("Попытка обновления пользователя с ID: {}", newUser.getId());
         if (newUser.getId() == null) {
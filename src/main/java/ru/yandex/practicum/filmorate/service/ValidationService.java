@@ -1,33 +1,49 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
-import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaRepository;
 import ru.yandex.practicum.filmorate.storage.user.UserRepository;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
  * Сервис для валидации данных.
- * Проверяет существование пользователей, фильмов, жанров и рейтингов MPA в БД.
+ * Проверяет существование пользователей и фильмов в БД, жанров и рейтингов MPA — по кэшу справочников.
  */
 @Service
 @RequiredArgsConstructor
 public class ValidationService {
     private final UserRepository userRepository;
     private final FilmRepository filmRepository;
-    private final GenreRepository genreRepository;
-    private final MpaRepository mpaRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final Validator validator;
 
     public void validateUserExists(Long userId) {
         if (userId == null) {
             throw new ValidationException("ID пользователя не может быть null");
         }
-        userRepository.getUserById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+
+    /**
+     * Возвращает ID из переданных, для которых пользователи не найдены. Проверка выполняется одним запросом.
+     */
+    public Set<Long> findMissingUserIds(Collection<Long> userIds) {
+        Set<Long> missing = new HashSet<>(userIds);
+        missing.removeAll(userRepository.findExistingIds(missing));
+        return missing;
     }
 
     public void validateUsersExist(Long userId1, Long userId2) {
@@ -51,8 +67,9 @@ public class ValidationService {
         if (filmId == null) {
             throw new ValidationException("ID фильма не может быть null");
         }
-        filmRepository.getFilmById(filmId)
-                .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
+        if (!filmRepository.existsById(filmId)) {
+            throw new NotFoundException("Фильм с ID " + filmId + " не найден");
+        }
     }
 
     public void validateFilm(Film film) {
@@ -73,11 +90,28 @@ public class ValidationService {
         }
     }
 
+    /**
+     * Проверяет аннотации модели так же, как @Valid в контроллере.
+     * Используется для элементов пакетных запросов, где ошибка одного элемента не должна отклонять весь пакет.
+     */
+    public <T> void validateConstraints(T object) {
+        if (object == null) {
+            throw new ValidationException("Объект не может быть null.");
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(object);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
     public void validateGenreExists(Long genreId) {
         if (genreId == null) {
             throw new ValidationException("ID жанра не может быть null");
         }
-        genreRepository.findGenreById(genreId)
+        referenceDataCache.findGenreById(genreId)
                 .orElseThrow(() -> new NotFoundException("Жанр с ID " + genreId + " не найден"));
     }
 
@@ -85,7 +119,16 @@ public class ValidationService {
         if (mpaId == null) {
             throw new ValidationException("ID рейтинга не может быть null");
         }
-        mpaRepository.findMpaById(mpaId)
+        referenceDataCache.findMpaById(mpaId)
                 .orElseThrow(() -> new NotFoundException("Рейтинг MPA с ID " + mpaId + " не найден"));
     }
-}
\ No newline at end of file
+
+    public void validatePage(Long afterId, Integer limit, int maxLimit) {
+        if (afterId != null && afterId < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным");
+        }
+        if (limit != null && (limit <= 0 || limit > maxLimit)) {
+            throw new ValidationException("Параметр limit должен быть в диапазоне от 1 до " + maxLimit);
+        }
+    }
+}
@@ -15,7 +15,7 @@ import java.util.Optional;
 
 /**
  * Базовый репозиторий для работы с БД через NamedParameterJdbcTemplate.
- * Предоставляет общие методы для CRUD-операций: поиск, вставка, обновление, удаление.
+ * Предоставляет общие методы для CRUD-операций: поиск, проверка существования, вставка, обновление, удаление.
  */
 @RequiredArgsConstructor
 public class BaseNamedParameterRepository<T> {
@@ -31,6 +31,11 @@ public class BaseNamedParameterRepository<T> {
         }
     }
 
+    protected boolean exists(String query, Map<String, ?> params) {
+        Boolean result = jdbc.queryForObject(query, params, Boolean.class);
+        return Boolean.TRUE.equals(result);
+    }
+
     protected List<T> findMany(String query, Map<String, ?> params) {
         return jdbc.query(query, params, mapper);
     }
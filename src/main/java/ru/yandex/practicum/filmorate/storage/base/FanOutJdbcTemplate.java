@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.base;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * JdbcTemplate, который ограничивает время запросов, запущенных через {@link QueryFanOut#fork}:
+ * такой запрос получает {@link Statement#setQueryTimeout} по таймауту {@link QueryFanOut}, и БД сама прерывает
+ * его, если вызывающий поток уже перестал ждать. Полные выгрузки и перестройки индексов выполняются
+ * без таймаута.
+ */
+public class FanOutJdbcTemplate extends JdbcTemplate {
+
+    public FanOutJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        Duration timeout = QueryFanOut.currentQueryTimeout();
+        if (timeout != null) {
+            stmt.setQueryTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        }
+    }
+}
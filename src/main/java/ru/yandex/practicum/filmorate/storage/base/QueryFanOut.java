@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.storage.base;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Параллельное выполнение независимых запросов при сборке агрегата.
+ * Запросы отправляются в отдельный пул, вызывающий поток ждёт их все с общим дедлайном.
+ * При ошибке или истечении времени оставшиеся запросы отменяются без прерывания потоков: прерывание посреди
+ * JDBC-вызова может оставить соединение пула в неопределённом состоянии. Время самого запроса в БД ограничивает
+ * {@link FanOutJdbcTemplate}: запросам из {@link #fork} он задаёт {@code Statement#setQueryTimeout} равным
+ * таймауту ожидания, после чего поток запроса освобождается сам. Остальные запросы приложения таймаута не получают.
+ * Внутри активной транзакции запросы выполняются последовательно в текущем потоке: другие потоки
+ * не видят её соединение и незафиксированные изменения.
+ */
+public class QueryFanOut implements AutoCloseable {
+    private static final ThreadLocal<Duration> QUERY_TIMEOUT = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+    private final Duration timeout;
+
+    public QueryFanOut(ExecutorService executor, Duration timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    public <T> Future<T> fork(Callable<T> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return CompletableFuture.completedFuture(query.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return executor.submit(() -> {
+            QUERY_TIMEOUT.set(timeout);
+            try {
+                return query.call();
+            } finally {
+                QUERY_TIMEOUT.remove();
+            }
+        });
+    }
+
+    /**
+     * Таймаут запросов, выполняемых в текущем потоке по {@link #fork}, или {@code null} вне такого потока.
+     */
+    static Duration currentQueryTimeout() {
+        return QUERY_TIMEOUT.get();
+    }
+
+    /**
+     * Ждёт завершения всех запросов. После успешного возврата результаты доступны через {@link Future#resultNow()}.
+     *
+     * @throws QueryTimeoutException если запросы не уложились в таймаут
+     */
+    public void joinAll(Future<?>... queries) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Future<?> query : queries) {
+                query.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            cancelAll(queries);
+            throw new QueryTimeoutException("Запросы не выполнены за " + timeout.toMillis() + " мс", e);
+        } catch (ExecutionException e) {
+            cancelAll(queries);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new DataRetrievalFailureException("Ошибка выполнения запроса", e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll(queries);
+            Thread.currentThread().interrupt();
+            throw new DataRetrievalFailureException("Ожидание результатов запросов прервано", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void cancelAll(Future<?>... queries) {
+        for (Future<?> query : queries) {
+            query.cancel(false);
+        }
+    }
+}
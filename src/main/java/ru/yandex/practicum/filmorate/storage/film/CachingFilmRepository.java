@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
+import ru.yandex.practicum.filmorate.storage.like.PendingLikes;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Кэширующая обёртка над репозиторием фильмов.
+ * Чтение по ID и проверка существования обслуживаются из {@link EntityCache}, обновление фильма
+ * инвалидирует запись. Лайки меняются в обход этого репозитория, их в кэше поправляет {@code LikeService}.
+ * При отложенной записи лайков на прочитанные из кэша или БД фильмы накладываются ещё не записанные лайки
+ * ({@link PendingLikes}), поэтому пользователь сразу видит свой лайк. В кэш они не попадают: его
+ * обновляет {@code LikeService} после записи лайков в БД.
+ */
+@Primary
+@Repository
+@Profile("!in-memory")
+public class CachingFilmRepository implements FilmRepository {
+    private final FilmRepository delegate;
+    private final EntityCache<Long, Film> filmCache;
+    private final PendingLikes pendingLikes;
+
+    @Autowired
+    public CachingFilmRepository(@Qualifier("filmRepository") FilmRepository delegate,
+                                 EntityCache<Long, Film> filmCache,
+                                 ObjectProvider<PendingLikes> pendingLikes) {
+        this(delegate, filmCache, pendingLikes.getIfAvailable(() -> PendingLikes.NONE));
+    }
+
+    public CachingFilmRepository(FilmRepository delegate, EntityCache<Long, Film> filmCache) {
+        this(delegate, filmCache, PendingLikes.NONE);
+    }
+
+    public CachingFilmRepository(FilmRepository delegate, EntityCache<Long, Film> filmCache,
+                                 PendingLikes pendingLikes) {
+        this.delegate = delegate;
+        this.filmCache = filmCache;
+        this.pendingLikes = pendingLikes;
+    }
+
+    @Override
+    public Collection<Film> findAllFilms() {
+        return withPendingLikes(delegate::findAllFilms);
+    }
+
+    @Override
+    public List<Film> findFilmsPage(long afterId, int limit) {
+        return withPendingLikes(() -> delegate.findFilmsPage(afterId, limit));
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        delegate.forEachFilm(consumer);
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count) {
+        return withPendingLikes(() -> delegate.getPopularFilms(count));
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count, PopularFilmsFilter filter) {
+        return withPendingLikes(() -> delegate.getPopularFilms(count, filter));
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        return delegate.createFilm(film);
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        return delegate.createFilms(films);
+    }
+
+    @Override
+    public Film updateFilm(Film newFilm) {
+        try {
+            return delegate.updateFilm(newFilm);
+        } finally {
+            filmCache.invalidate(newFilm.getId());
+        }
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Long id) {
+        Map<Long, Map<Long, Boolean>> pending = pendingLikes.forFilms(List.of(id));
+        Optional<Film> film = filmCache.get(id, delegate::getFilmById);
+        film.ifPresent(value -> applyPendingLikes(value, pending));
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        Map<Long, Map<Long, Boolean>> pending = pendingLikes.forFilms(ids);
+        List<Film> films = filmCache.getAll(ids, delegate::getFilmsByIds, Film::getId);
+        if (!pending.isEmpty()) {
+            films.forEach(film -> applyPendingLikes(film, pending));
+        }
+        return films;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return filmCache.contains(id) || delegate.existsById(id);
+    }
+
+    /**
+     * Снимок всех незаписанных лайков для чтения каталога целиком; берётся до чтения из БД — см. {@link PendingLikes}.
+     */
+    private <T extends Collection<Film>> T withPendingLikes(Supplier<T> reader) {
+        Map<Long, Map<Long, Boolean>> pending = pendingLikes.snapshot();
+        T films = reader.get();
+        if (!pending.isEmpty()) {
+            films.forEach(film -> applyPendingLikes(film, pending));
+        }
+        return films;
+    }
+
+    private static void applyPendingLikes(Film film, Map<Long, Map<Long, Boolean>> pending) {
+        Map<Long, Boolean> changes = pending.get(film.getId());
+        if (changes == null) {
+            return;
+        }
+        changes.forEach((userId, liked) -> {
+            if (liked) {
+                film.getLikes().add(userId);
+            } else {
+                film.getLikes().remove(userId);
+            }
+        });
+    }
+}
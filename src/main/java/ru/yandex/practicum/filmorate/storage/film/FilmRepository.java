@@ -1,19 +1,37 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
 
     Collection<Film> findAllFilms();
 
+    List<Film> findFilmsPage(long afterId, int limit);
+
+    /**
+     * Передаёт все фильмы по возрастанию ID. Жанры и лайки могут быть не загружены.
+     */
+    void forEachFilm(Consumer<Film> consumer);
+
     Collection<Film> getPopularFilms(int count);
 
+    Collection<Film> getPopularFilms(int count, PopularFilmsFilter filter);
+
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film newFilm);
 
     Optional<Film> getFilmById(Long id);
+
+    List<Film> getFilmsByIds(List<Long> ids);
+
+    boolean existsById(Long id);
 }
@@ -1,24 +1,39 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
 import ru.yandex.practicum.filmorate.storage.base.BaseNamedParameterRepository;
+import ru.yandex.practicum.filmorate.storage.base.QueryFanOut;
 import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Репозиторий для работы с фильмами в БД.
  * Реализует операции: создание, обновление, удаление, поиск по ID, получение популярных фильмов.
+ * При сборке фильма жанры загружаются параллельно через {@link QueryFanOut}, а остальные запросы выполняются
+ * в вызывающем потоке: один вызов держит не больше двух соединений пула.
  */
 @Repository
+@Profile("!in-memory")
 @Qualifier("filmRepository")
 public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> implements FilmRepository {
     private static final String FIND_ALL_FILMS_QUERY = """
@@ -28,6 +43,15 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
             ORDER BY f.film_id
             """;
 
+    private static final String FIND_FILMS_PAGE_QUERY = """
+            SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name
+            FROM films f
+            JOIN mpa_ratings m ON f.mpa_id = m.mpa_id
+            WHERE f.film_id > :afterId
+            ORDER BY f.film_id
+            LIMIT :limit
+            """;
+
     private static final String FIND_FILM_BY_ID_QUERY = """
             SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name
             FROM films f
@@ -35,6 +59,16 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
             WHERE f.film_id = :filmId
             """;
 
+    private static final String FIND_FILMS_BY_IDS_QUERY = """
+            SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name
+            FROM films f
+            JOIN mpa_ratings m ON f.mpa_id = m.mpa_id
+            WHERE f.film_id IN (:filmIds)
+            """;
+
+    private static final String EXISTS_FILM_BY_ID_QUERY = """
+            SELECT EXISTS(SELECT 1 FROM films WHERE film_id = :filmId)""";
+
     private static final String INSERT_FILM_QUERY = """
             INSERT INTO films (name, description, release_date, duration, mpa_id)
             VALUES (:name, :description, :releaseDate, :duration, :mpaId)
@@ -49,17 +83,34 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
     private static final String DELETE_FILM_QUERY = "DELETE FROM films WHERE film_id = :filmId";
 
     private static final String GET_POPULAR_FILM_QUERY = """
-            SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name,
-            COUNT(l.user_id) AS like_count
+            SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name
+            FROM films f
+            JOIN mpa_ratings m ON f.mpa_id = m.mpa_id
+            ORDER BY f.like_count DESC, f.film_id
+            LIMIT :count
+            """;
+
+    private static final String GET_POPULAR_FILTERED_FILM_QUERY = """
+            SELECT f.*, m.mpa_id AS mpa_id, m.name AS mpa_name
             FROM films f
             JOIN mpa_ratings m ON f.mpa_id = m.mpa_id
-            LEFT JOIN likes l ON f.film_id = l.film_id
-            GROUP BY f.film_id, f.name, f.description, f.release_date, f.duration, f.mpa_id,
-                 m.mpa_id, m.name
-            ORDER BY like_count DESC
+            WHERE (CAST(:genreId AS BIGINT) IS NULL OR EXISTS (
+                    SELECT 1 FROM film_genre fg WHERE fg.film_id = f.film_id AND fg.genre_id = :genreId))
+              AND (CAST(:year AS INTEGER) IS NULL OR EXTRACT(YEAR FROM f.release_date) = :year)
+              AND (CAST(:mpaId AS BIGINT) IS NULL OR f.mpa_id = :mpaId)
+            ORDER BY f.like_count DESC, f.film_id
             LIMIT :count
             """;
 
+    private static final String FIND_LIKES_BY_FILM_ID_QUERY = """
+            SELECT user_id FROM likes WHERE film_id = :filmId""";
+
+    private static final String FIND_ALL_LIKES_QUERY = """
+            SELECT film_id, user_id FROM likes""";
+
+    private static final String FIND_LIKES_BY_FILM_IDS_QUERY = """
+            SELECT film_id, user_id FROM likes WHERE film_id IN (:filmIds)""";
+
     private static final String DELETE_GENRE_FILM_QUERY = """
             DELETE FROM film_genre WHERE film_id = :filmId""";
     private static final String
@@ -67,50 +118,138 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
             INSERT INTO film_genre(film_id, genre_id) VALUES(?, ?)""";
 
     private final GenreRepository genreRepository;
+    private final QueryFanOut fanOut;
 
-    public JdbcFilmRepository(NamedParameterJdbcOperations jdbc, RowMapper<Film> mapper, GenreRepository genreRepository) {
+    public JdbcFilmRepository(NamedParameterJdbcOperations jdbc, RowMapper<Film> mapper, GenreRepository genreRepository,
+                              QueryFanOut fanOut) {
         super(jdbc, mapper);
         this.genreRepository = genreRepository;
+        this.fanOut = fanOut;
     }
 
     @Override
     public List<Film> findAllFilms() {
+        Future<Map<Long, Set<Genre>>> genresQuery = fanOut.fork(genreRepository::findAllFilmGenres);
         List<Film> films = findMany(FIND_ALL_FILMS_QUERY, new HashMap<>());
-
         Map<Long, Set<Long>> allLikes = loadAllLikes();
+        fanOut.joinAll(genresQuery);
+        Map<Long, Set<Genre>> allGenres = genresQuery.resultNow();
 
         films.forEach(film -> {
-            film.setGenres(genreRepository.findGenreByFilmId(film.getId()));
+            film.setGenres(allGenres.getOrDefault(film.getId(), new TreeSet<>(Comparator.comparingLong(Genre::getId))));
             film.setLikes(allLikes.getOrDefault(film.getId(), new HashSet<>()));
         });
 
         return films;
     }
 
+    /**
+     * Возвращает страницу фильмов с ID больше afterId в порядке возрастания ID (keyset-пагинация).
+     */
+    @Override
+    public List<Film> findFilmsPage(long afterId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterId", afterId);
+        params.put("limit", limit);
+        List<Film> films = findMany(FIND_FILMS_PAGE_QUERY, params);
+        fillGenresAndLikes(films);
+        return films;
+    }
+
+    /**
+     * Передаёт фильмы потребителю по мере чтения из ResultSet, не накапливая их в памяти.
+     */
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        jdbc.query(FIND_ALL_FILMS_QUERY, new HashMap<>(), rs -> {
+            consumer.accept(mapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
     @Override
     public Optional<Film> getFilmById(Long filmId) {
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
-        return findOne(FIND_FILM_BY_ID_QUERY, params).map(film -> {
-            film.setGenres(genreRepository.findGenreByFilmId(filmId));
+        Optional<Film> found = findOne(FIND_FILM_BY_ID_QUERY, params);
+        found.ifPresent(film -> {
+            Future<Set<Genre>> genresQuery = fanOut.fork(() -> genreRepository.findGenreByFilmId(filmId));
             film.setLikes(loadLikesForFilm(filmId));
-            return film;
+            fanOut.joinAll(genresQuery);
+            film.setGenres(genresQuery.resultNow());
+        });
+        return found;
+    }
+
+    @Override
+    public boolean existsById(Long filmId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("filmId", filmId);
+        return exists(EXISTS_FILM_BY_ID_QUERY, params);
+    }
+
+    /**
+     * Загружает фильмы по списку ID, сохраняя порядок переданного списка.
+     * Жанры и лайки догружаются одним запросом на весь список.
+     */
+    @Override
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("filmIds", ids);
+        Map<Long, Film> filmsById = new HashMap<>();
+        findMany(FIND_FILMS_BY_IDS_QUERY, params).forEach(film -> filmsById.put(film.getId(), film));
+
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+        fillGenresAndLikes(films);
+        return films;
+    }
+
+    private void fillGenresAndLikes(List<Film> films) {
+        List<Long> filmIds = films.stream().map(Film::getId).toList();
+        Future<Map<Long, Set<Genre>>> genresQuery = fanOut.fork(() -> genreRepository.findGenresByFilmIds(filmIds));
+        Map<Long, Set<Long>> likes = loadLikesForFilms(filmIds);
+        fanOut.joinAll(genresQuery);
+
+        Map<Long, Set<Genre>> genres = genresQuery.resultNow();
+        films.forEach(film -> {
+            film.setGenres(genres.getOrDefault(film.getId(), new TreeSet<>(Comparator.comparingLong(Genre::getId))));
+            film.setLikes(likes.getOrDefault(film.getId(), new HashSet<>()));
         });
     }
 
     private Set<Long> loadLikesForFilm(Long filmId) {
-        String sql = "SELECT user_id FROM likes WHERE film_id = :filmId";
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
 
-        return new HashSet<>(jdbc.queryForList(sql, params, Long.class));
+        return new HashSet<>(jdbc.queryForList(FIND_LIKES_BY_FILM_ID_QUERY, params, Long.class));
+    }
+
+    private Map<Long, Set<Long>> loadLikesForFilms(Collection<Long> filmIds) {
+        Map<Long, Set<Long>> likesMap = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return likesMap;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("filmIds", filmIds);
+
+        jdbc.query(FIND_LIKES_BY_FILM_IDS_QUERY, params, (rs) -> {
+            Long filmId = rs.getLong("film_id");
+            Long userId = rs.getLong("user_id");
+            likesMap.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+        });
+
+        return likesMap;
     }
 
     private Map<Long, Set<Long>> loadAllLikes() {
-        String sql = "SELECT film_id, user_id FROM likes";
         Map<Long, Set<Long>> likesMap = new HashMap<>();
 
-        jdbc.query(sql, (rs) -> {
+        jdbc.query(FIND_ALL_LIKES_QUERY, (rs) -> {
             Long filmId = rs.getLong("film_id");
             Long userId = rs.getLong("user_id");
             likesMap.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
@@ -134,6 +273,49 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
         return film;
     }
 
+    /**
+     * Сохраняет фильмы пакетом: одна пакетная вставка в films с получением сгенерированных ключей
+     * и одна пакетная вставка всех связей film_genre.
+     */
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        SqlParameterSource[] batchArgs = films.stream()
+                .map(film -> new MapSqlParameterSource()
+                        .addValue("name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("releaseDate", film.getReleaseDate())
+                        .addValue("duration", film.getDuration())
+                        .addValue("mpaId", film.getMpa().getId()))
+                .toArray(SqlParameterSource[]::new);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(INSERT_FILM_QUERY, batchArgs, keyHolder, new String[]{"film_id"});
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .map(Genre::getId)
+                        .distinct()
+                        .forEach(genreId -> genreRows.add(new Object[]{film.getId(), genreId}));
+            }
+        }
+        if (!genreRows.isEmpty()) {
+            jdbc.getJdbcOperations().batchUpdate(INSERT_GENRE_FILM_QUERY, genreRows);
+        }
+        return films;
+    }
+
     @Override
     public Film updateFilm(Film newFilm) {
         Map<String, Object> params = new HashMap<>();
@@ -161,9 +343,27 @@ public class JdbcFilmRepository extends BaseNamedParameterRepository<Film> imple
         Map<String, Object> params = new HashMap<>();
         params.put("count", count);
         List<Film> films = findMany(GET_POPULAR_FILM_QUERY, params);
+        fillGenresAndLikes(films);
 
-        Map<Long, Set<Long>> allLikes = loadAllLikes();
-        films.forEach(film -> film.setLikes(allLikes.getOrDefault(film.getId(), new HashSet<>())));
+        return films;
+    }
+
+    /**
+     * Популярные фильмы с отбором по жанру, году и рейтингу. Используется, пока индекс популярности не построен:
+     * фильмы читаются по индексу like_count и отбрасываются, пока не наберётся count подходящих.
+     */
+    @Override
+    public Collection<Film> getPopularFilms(int count, PopularFilmsFilter filter) {
+        if (filter.isEmpty()) {
+            return getPopularFilms(count);
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("count", count);
+        params.put("genreId", filter.genreId());
+        params.put("year", filter.year());
+        params.put("mpaId", filter.mpaId());
+        List<Film> films = findMany(GET_POPULAR_FILTERED_FILM_QUERY, params);
+        fillGenresAndLikes(films);
 
         return films;
     }
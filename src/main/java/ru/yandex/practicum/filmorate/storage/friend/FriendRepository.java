@@ -1,16 +1,22 @@
 package ru.yandex.practicum.filmorate.storage.friend;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface FriendRepository {
 
     void addFriend(Long userId, Long friendId);
 
+    void addFriends(List<Friendship> friendships);
+
     void removeFriend(Long userId, Long friendId);
 
     List<User> getFriends(Long userId);
 
     List<User> getCommonFriends(Long userId1, Long userId2);
+
+    void forEachFriendship(BiConsumer<Long, Long> consumer);
 }
\ No newline at end of file
@@ -1,21 +1,31 @@
 package ru.yandex.practicum.filmorate.storage.friend;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Репозиторий для управления дружескими связями в БД.
  * Обрабатывает добавление/удаление друзей, получение списка друзей и общих друзей.
  */
+@Slf4j
 @Repository
+@Profile("!in-memory")
 @Qualifier("friendRepository")
 @RequiredArgsConstructor
 public class JdbcFriendRepository implements FriendRepository {
@@ -24,14 +34,13 @@ public class JdbcFriendRepository implements FriendRepository {
     private final UserRowMapper userRowMapper;
 
     private static final String ADD_FRIEND_QUERY = """
-            INSERT INTO friends (user_id, friend_id, confirmed)
-            VALUES (:userId, :friendId, TRUE)
-            """;
-
-    private static final String CONFIRM_FRIENDSHIP_QUERY = """
-            UPDATE friends
-            SET confirmed = TRUE
-            WHERE user_id = :userId AND friend_id = :friendId
+            MERGE INTO friends f
+            USING (VALUES (CAST(:lowId AS BIGINT), CAST(:highId AS BIGINT)),
+                          (CAST(:highId AS BIGINT), CAST(:lowId AS BIGINT))) AS s (user_id, friend_id)
+            ON f.user_id = s.user_id AND f.friend_id = s.friend_id
+            WHEN MATCHED THEN UPDATE SET confirmed = TRUE
+            WHEN NOT MATCHED AND s.user_id = :userId THEN INSERT (user_id, friend_id, confirmed)
+                VALUES (s.user_id, s.friend_id, TRUE)
             """;
 
     private static final String REMOVE_FRIEND_QUERY = """
@@ -48,44 +57,47 @@ public class JdbcFriendRepository implements FriendRepository {
 
     private static final String GET_COMMON_FRIENDS_QUERY = """
             SELECT u.user_id, u.email, u.login, u.name, u.birthday
-            FROM users u
-            WHERE u.user_id IN (
-                SELECT f1.friend_id
-                FROM friends f1
-                JOIN friends f2 ON f1.friend_id = f2.friend_id
-                WHERE f1.user_id = :userId1 AND f2.user_id = :userId2
-               )
-            """;
-
-    private static final String CHECK_FRIENDSHIP_STATUS_QUERY = """
-            SELECT COUNT(*) > 0 AS has_friendship
-            FROM friends
-            WHERE user_id = :userId AND friend_id = :friendId AND confirmed = :confirmed
+            FROM friends f1
+            JOIN friends f2 ON f2.user_id = :userId2 AND f2.friend_id = f1.friend_id
+            JOIN users u ON u.user_id = f1.friend_id
+            WHERE f1.user_id = :userId1
             """;
 
+    private static final String FIND_ALL_FRIENDSHIPS_QUERY = """
+            SELECT user_id, friend_id FROM friends""";
+
+    /**
+     * Добавляет друга одним MERGE без предварительного чтения: связь вставляется, если её нет,
+     * а встречная связь, если есть, подтверждается в том же запросе. Повторный вызов ничего не меняет.
+     * Если ту же связь одновременно вставила другая транзакция, MERGE падает на первичном ключе —
+     * связь при этом уже есть.
+     * <p>
+     * Строки пары перебираются в одном порядке (сначала связь от меньшего ID) при любом направлении запроса,
+     * поэтому встречные запросы блокируют строки в одном порядке и не попадают во взаимную блокировку.
+     */
     @Override
     public void addFriend(Long userId, Long friendId) {
-        boolean hasReverseRequest = checkFriendshipStatus(userId, friendId, false);
-
-        if (hasReverseRequest) {
-            Map<String, Object> confirmParams1 = new HashMap<>();
-            confirmParams1.put("userId", userId);
-            confirmParams1.put("friendId", friendId);
-
-            Map<String, Object> confirmParams2 = new HashMap<>();
-            confirmParams2.put("userId", friendId);
-            confirmParams2.put("friendId", userId);
-
-            jdbc.update(CONFIRM_FRIENDSHIP_QUERY, confirmParams1);
-            jdbc.update(CONFIRM_FRIENDSHIP_QUERY, confirmParams2);
-        } else {
-            Map<String, Object> addParams = new HashMap<>();
-            addParams.put("userId", userId);
-            addParams.put("friendId", friendId);
-            jdbc.update(ADD_FRIEND_QUERY, addParams);
+        Map<String, Object> params = friendParams(userId, friendId);
+        try {
+            jdbc.update(ADD_FRIEND_QUERY, params);
+        } catch (DuplicateKeyException e) {
+            log.debug("Связь {} -> {} уже добавлена параллельным запросом", userId, friendId);
         }
     }
 
+    /**
+     * Пакетно сохраняет связи дружбы тем же MERGE, что и {@link #addFriend}: повторная связь не приводит к ошибке.
+     */
+    @Override
+    @Transactional
+    public void addFriends(List<Friendship> friendships) {
+        SqlParameterSource[] batchArgs = friendships.stream()
+                .map(friendship -> new MapSqlParameterSource(
+                        friendParams(friendship.getUserId(), friendship.getFriendId())))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(ADD_FRIEND_QUERY, batchArgs);
+    }
+
     @Override
     public void removeFriend(Long userId, Long friendId) {
         Map<String, Object> params = new HashMap<>();
@@ -109,12 +121,21 @@ public class JdbcFriendRepository implements FriendRepository {
         return jdbc.query(GET_COMMON_FRIENDS_QUERY, params, userRowMapper);
     }
 
-    private boolean checkFriendshipStatus(Long userId, Long friendId, boolean confirmed) {
+    /**
+     * Построчно передаёт все связи дружбы в виде пар (userId, friendId), не накапливая их в памяти.
+     */
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        jdbc.query(FIND_ALL_FRIENDSHIPS_QUERY, rs -> {
+            consumer.accept(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+    }
+
+    private static Map<String, Object> friendParams(Long userId, Long friendId) {
         Map<String, Object> params = new HashMap<>();
         params.put("userId", userId);
-        params.put("friendId", friendId);
-        params.put("confirmed", confirmed);
-        Boolean result = jdbc.queryForObject(CHECK_FRIENDSHIP_STATUS_QUERY, params, Boolean.class);
-        return result != null ? result : false;
+        params.put("lowId", Math.min(userId, friendId));
+        params.put("highId", Math.max(userId, friendId));
+        return params;
     }
 }
@@ -2,7 +2,9 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -13,4 +15,8 @@ public interface GenreRepository {
     List<Genre> findAllGenres();
 
     Set<Genre> findGenreByFilmId(Long filmId);
+
+    Map<Long, Set<Genre>> findAllFilmGenres();
+
+    Map<Long, Set<Genre>> findGenresByFilmIds(Collection<Long> filmIds);
 }
\ No newline at end of file
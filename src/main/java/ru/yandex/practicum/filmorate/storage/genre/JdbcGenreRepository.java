@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
@@ -14,6 +15,7 @@ import java.util.stream.Collectors;
  * Поддерживает поиск жанров по ID, всех жанров, а также жанров конкретного фильма.
  */
 @Repository
+@Profile("!in-memory")
 public class JdbcGenreRepository extends BaseNamedParameterRepository<Genre> implements GenreRepository {
     private static final String FIND_ALL_GENRES_QUERY = "SELECT * FROM genres";
     private static final String FIND_GENRE_BY_ID_QUERY = "SELECT * FROM genres WHERE genre_id = :genreId";
@@ -24,6 +26,17 @@ public class JdbcGenreRepository extends BaseNamedParameterRepository<Genre> imp
             WHERE fg.film_id = :filmId
             ORDER BY g.genre_id
             """;
+    private static final String FIND_ALL_FILM_GENRES_QUERY = """
+            SELECT fg.film_id, g.genre_id, g.name
+            FROM film_genre fg
+            JOIN genres g ON fg.genre_id = g.genre_id
+            """;
+    private static final String FIND_GENRES_BY_FILM_IDS_QUERY = """
+            SELECT fg.film_id, g.genre_id, g.name
+            FROM film_genre fg
+            JOIN genres g ON fg.genre_id = g.genre_id
+            WHERE fg.film_id IN (:filmIds)
+            """;
 
     public JdbcGenreRepository(NamedParameterJdbcOperations jdbc, RowMapper<Genre> mapper) {
         super(jdbc, mapper);
@@ -46,6 +59,41 @@ public class JdbcGenreRepository extends BaseNamedParameterRepository<Genre> imp
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
         return findMany(FIND_FILM_GENRES_BY_ID_QUERY, params).stream()
-                .collect(Collectors.toCollection(() -> new TreeSet<>(Comparator.comparingLong(Genre::getId))));
+                .collect(Collectors.toCollection(JdbcGenreRepository::newGenreSet));
+    }
+
+    /**
+     * Загружает жанры всех фильмов одним запросом и группирует их по ID фильма.
+     */
+    @Override
+    public Map<Long, Set<Genre>> findAllFilmGenres() {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        jdbc.query(FIND_ALL_FILM_GENRES_QUERY, rs -> {
+            genresByFilm.computeIfAbsent(rs.getLong("film_id"), k -> newGenreSet())
+                    .add(mapper.mapRow(rs, rs.getRow()));
+        });
+        return genresByFilm;
+    }
+
+    /**
+     * Загружает жанры указанных фильмов одним запросом и группирует их по ID фильма.
+     */
+    @Override
+    public Map<Long, Set<Genre>> findGenresByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genresByFilm;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("filmIds", filmIds);
+        jdbc.query(FIND_GENRES_BY_FILM_IDS_QUERY, params, rs -> {
+            genresByFilm.computeIfAbsent(rs.getLong("film_id"), k -> newGenreSet())
+                    .add(mapper.mapRow(rs, rs.getRow()));
+        });
+        return genresByFilm;
+    }
+
+    private static Set<Genre> newGenreSet() {
+        return new TreeSet<>(Comparator.comparingLong(Genre::getId));
     }
 }
\ No newline at end of file
@@ -1,36 +1,195 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Репозиторий для работы с лайками фильмов в БД.
- * Позволяет добавлять и удалять лайки пользователей.
+ * Позволяет добавлять и удалять лайки пользователей, поддерживая счётчик films.like_count.
  */
 @Repository
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class JdbcLikeRepository implements LikeRepository {
+    private static final String MERGE_LIKE_QUERY = """
+            MERGE INTO likes l
+            USING (VALUES (CAST(:filmId AS BIGINT), CAST(:userId AS BIGINT))) AS s (film_id, user_id)
+            ON l.film_id = s.film_id AND l.user_id = s.user_id
+            WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)
+            """;
+    private static final String DELETE_LIKE_QUERY = """
+            DELETE FROM likes WHERE film_id = :filmId AND user_id = :userId""";
+    private static final String INCREMENT_LIKE_COUNT_QUERY = """
+            UPDATE films SET like_count = like_count + 1 WHERE film_id = :filmId""";
+    private static final String DECREMENT_LIKE_COUNT_QUERY = """
+            UPDATE films SET like_count = like_count - 1 WHERE film_id = :filmId""";
+    private static final String ADD_LIKE_COUNT_QUERY = """
+            UPDATE films SET like_count = like_count + :delta WHERE film_id = :filmId""";
+    private static final String REPAIR_LIKE_COUNTS_QUERY = """
+            UPDATE films f
+            SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+            WHERE f.like_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+            """;
+    private static final String FIND_ALL_LIKES_QUERY = """
+            SELECT film_id, user_id FROM likes""";
+    private static final String FIND_SIMILAR_FILM_IDS_QUERY = """
+            SELECT other.film_id
+            FROM likes l
+            JOIN likes other ON other.user_id = l.user_id AND other.film_id <> l.film_id
+            WHERE l.film_id = :filmId
+            GROUP BY other.film_id
+            ORDER BY COUNT(*) DESC, other.film_id
+            LIMIT :count
+            """;
+    private static final String FIND_RECOMMENDED_FILM_IDS_QUERY = """
+            SELECT candidate.film_id
+            FROM likes liked
+            JOIN likes neighbour ON neighbour.film_id = liked.film_id AND neighbour.user_id <> liked.user_id
+            JOIN likes candidate ON candidate.user_id = neighbour.user_id
+            WHERE liked.user_id = :userId
+              AND NOT EXISTS (SELECT 1 FROM likes own WHERE own.user_id = :userId AND own.film_id = candidate.film_id)
+            GROUP BY candidate.film_id
+            ORDER BY COUNT(*) DESC, candidate.film_id
+            LIMIT :count
+            """;
+
     private final NamedParameterJdbcOperations jdbc;
 
+    /**
+     * Ставит лайк одним MERGE, который вставляет строку, только если её ещё нет, поэтому повторный лайк
+     * не нарушает первичный ключ. Счётчик увеличивается, только если строка вставлена.
+     * Если такой же лайк одновременно вставила другая транзакция, MERGE падает на первичном ключе —
+     * это тоже означает, что лайк уже есть.
+     *
+     * @return {@code true}, если лайка не было
+     */
     @Override
-    public void addLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (:filmId, :userId)";
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
         params.put("userId", userId);
-        jdbc.update(sql, params);
+        try {
+            if (jdbc.update(MERGE_LIKE_QUERY, params) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        jdbc.update(INCREMENT_LIKE_COUNT_QUERY, params);
+        return true;
     }
 
     @Override
-    public void removeLike(Long filmId, Long userId) {
-        String sql = "DELETE FROM likes WHERE film_id = :filmId AND user_id = :userId";
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
         params.put("userId", userId);
-        jdbc.update(sql, params);
+        if (jdbc.update(DELETE_LIKE_QUERY, params) == 0) {
+            return false;
+        }
+        jdbc.update(DECREMENT_LIKE_COUNT_QUERY, params);
+        return true;
+    }
+
+    /**
+     * Записывает пачку изменений лайков в одной транзакции: вставки и удаления выполняются пакетными запросами,
+     * затем films.like_count каждого фильма сдвигается на число фактически изменённых строк.
+     * Уже существующий лайк повторно не вставляется, отсутствующий — не удаляется, поэтому состояние лайков
+     * перед записью читать не нужно.
+     *
+     * @return изменения, которые действительно вставили или удалили строку
+     */
+    @Transactional
+    public List<LikeChange> applyLikeChanges(List<LikeChange> changes) {
+        List<LikeChange> added = changes.stream().filter(LikeChange::liked).toList();
+        List<LikeChange> removed = changes.stream().filter(change -> !change.liked()).toList();
+        List<LikeChange> applied = new ArrayList<>();
+        collectApplied(added, jdbc.batchUpdate(MERGE_LIKE_QUERY, toBatchArgs(added)), applied);
+        collectApplied(removed, jdbc.batchUpdate(DELETE_LIKE_QUERY, toBatchArgs(removed)), applied);
+        Map<Long, Long> deltas = new HashMap<>();
+        applied.forEach(change -> deltas.merge(change.filmId(), change.liked() ? 1L : -1L, Long::sum));
+        SqlParameterSource[] countArgs = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("filmId", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(ADD_LIKE_COUNT_QUERY, countArgs);
+        return applied;
+    }
+
+    /**
+     * Пересчитывает films.like_count по таблице likes для фильмов, у которых счётчик разошёлся с данными.
+     * Используется для первичного заполнения колонки и периодической проверки согласованности.
+     *
+     * @return количество исправленных фильмов
+     */
+    @Override
+    public int repairLikeCounts() {
+        return jdbc.update(REPAIR_LIKE_COUNTS_QUERY, new HashMap<>());
+    }
+
+    /**
+     * Построчно передаёт все лайки в виде пар (filmId, userId), не накапливая их в памяти.
+     */
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        jdbc.query(FIND_ALL_LIKES_QUERY, rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
+    }
+
+    /**
+     * Фильмы по убыванию числа пользователей, лайкнувших и их, и данный фильм. Используется, пока не построен
+     * граф лайков в памяти.
+     */
+    @Override
+    public List<Long> findSimilarFilmIds(Long filmId, int count) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("filmId", filmId);
+        params.put("count", count);
+        return jdbc.queryForList(FIND_SIMILAR_FILM_IDS_QUERY, params, Long.class);
+    }
+
+    /**
+     * Фильмы, которые пользователь ещё не лайкал, по убыванию числа совместных лайков с уже понравившимися ему.
+     * Используется, пока не построен граф лайков в памяти.
+     */
+    @Override
+    public List<Long> findRecommendedFilmIds(Long userId, int count) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", userId);
+        params.put("count", count);
+        return jdbc.queryForList(FIND_RECOMMENDED_FILM_IDS_QUERY, params, Long.class);
+    }
+
+    private static SqlParameterSource[] toBatchArgs(List<LikeChange> changes) {
+        return changes.stream()
+                .map(change -> new MapSqlParameterSource()
+                        .addValue("filmId", change.filmId())
+                        .addValue("userId", change.userId()))
+                .toArray(SqlParameterSource[]::new);
+    }
+
+    private static void collectApplied(List<LikeChange> changes, int[] updated, List<LikeChange> applied) {
+        for (int i = 0; i < changes.size(); i++) {
+            if (updated[i] > 0) {
+                applied.add(changes.get(i));
+            }
+        }
     }
 }
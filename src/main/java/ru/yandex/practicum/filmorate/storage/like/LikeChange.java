@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+/**
+ * Изменение лайка: {@code liked = true} — пользователь поставил лайк, {@code false} — убрал.
+ */
+public record LikeChange(long filmId, long userId, boolean liked) {
+}
@@ -1,8 +1,18 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
+import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface LikeRepository {
-    void addLike(Long filmId, Long userId);
+    boolean addLike(Long filmId, Long userId);
 
-    void removeLike(Long filmId, Long userId);
+    boolean removeLike(Long filmId, Long userId);
+
+    int repairLikeCounts();
+
+    void forEachLike(BiConsumer<Long, Long> consumer);
+
+    List<Long> findSimilarFilmIds(Long filmId, int count);
+
+    List<Long> findRecommendedFilmIds(Long userId, int count);
 }
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import java.util.List;
+
+/**
+ * Пачка отложенных изменений лайков зафиксирована в БД.
+ * Содержит только изменения, которые действительно поменяли таблицу likes: повторный лайк и отмена
+ * отсутствующего лайка в неё не попадают.
+ */
+public record LikesAppliedEvent(List<LikeChange> changes) {
+}
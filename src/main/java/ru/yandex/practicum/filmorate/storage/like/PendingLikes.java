@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Лайки, которые уже подтверждены клиенту, но ещё не записаны в БД.
+ * Читатель берёт снимок до чтения из кэша или БД и накладывает его на прочитанные данные: изменение,
+ * записанное между снимком и чтением, есть и в снимке, а записанное до снимка — уже в БД и в кэше.
+ */
+public interface PendingLikes {
+    PendingLikes NONE = new PendingLikes() {
+        @Override
+        public Map<Long, Map<Long, Boolean>> snapshot() {
+            return Map.of();
+        }
+
+        @Override
+        public Map<Long, Map<Long, Boolean>> forFilms(Collection<Long> filmIds) {
+            return Map.of();
+        }
+    };
+
+    /**
+     * @return ID фильма → (ID пользователя → есть ли лайк); пустая карта, если незаписанных изменений нет
+     */
+    Map<Long, Map<Long, Boolean>> snapshot();
+
+    /**
+     * То же, что {@link #snapshot()}, но только для переданных фильмов.
+     */
+    Map<Long, Map<Long, Boolean>> forFilms(Collection<Long> filmIds);
+}
@@ -0,0 +1,566 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Отложенная запись лайков поверх {@link JdbcLikeRepository}.
+ * Лайк подтверждается, как только попал в буфер своего шарда (шард выбирается по ID фильма), а в БД его
+ * записывает фоновый поток шарда пачкой — когда набралось {@code batchSize} изменений или с первого
+ * незаписанного прошло {@code flushInterval}. Повторные изменения одной пары (фильм, пользователь) в буфере
+ * схлопываются в последнее. При постановке в буфер БД не читается: вставка и удаление идемпотентны,
+ * и какие изменения действительно поменяли таблицу likes, становится известно при записи пачки.
+ * <p>
+ * Поэтому addLike/removeLike возвращают {@code false}, а индексы в памяти и кэш фильмов обновляются
+ * по {@link LikesAppliedEvent} после фиксации пачки и только по фактически применённым изменениям.
+ * Пачка, которую не удалось записать за {@value #MAX_ATTEMPTS} попытки, отбрасывается целиком —
+ * производные структуры при этом не меняются и не расходятся с БД.
+ * <p>
+ * Переполненный буфер задерживает вызов на {@code enqueueTimeout}, затем отвечает
+ * {@link ServiceUnavailableException}. В режиме {@link Durability#SYNC} вызов ждёт фиксации своей пачки
+ * (групповая фиксация), в {@link Durability#ASYNC} — нет, и при аварийной остановке процесса незаписанные
+ * лайки теряются. Незаписанные изменения доступны через {@link PendingLikes}, поэтому пользователь видит
+ * свой лайк в карточке фильма ещё до записи в БД.
+ */
+@Slf4j
+public class WriteBehindLikeRepository implements LikeRepository, PendingLikes, AutoCloseable {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcLikeRepository delegate;
+    private final ApplicationEventPublisher events;
+    private final Settings settings;
+    private final Shard[] shards;
+    private volatile boolean running = true;
+
+    public WriteBehindLikeRepository(JdbcLikeRepository delegate, ApplicationEventPublisher events,
+                                     Settings settings) {
+        this.delegate = delegate;
+        this.events = events;
+        this.settings = settings;
+        this.shards = new Shard[settings.shards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+        log.info("Отложенная запись лайков включена: шардов {}, буфер {}, пачка {}, интервал {} мс, режим {}",
+                settings.shards(), settings.capacity(), settings.batchSize(),
+                settings.flushInterval().toMillis(), settings.durability());
+    }
+
+    /**
+     * Ставит лайк в буфер.
+     *
+     * @return всегда {@code false}: лайк ещё не применён, производные структуры обновит {@link LikesAppliedEvent}
+     */
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        change(new LikeChange(filmId, userId, true));
+        return false;
+    }
+
+    /**
+     * Ставит отмену лайка в буфер.
+     *
+     * @return всегда {@code false}: отмена ещё не применена, производные структуры обновит {@link LikesAppliedEvent}
+     */
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        change(new LikeChange(filmId, userId, false));
+        return false;
+    }
+
+    @Override
+    public int repairLikeCounts() {
+        flush();
+        return delegate.repairLikeCounts();
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        flush();
+        delegate.forEachLike(consumer);
+    }
+
+    @Override
+    public List<Long> findSimilarFilmIds(Long filmId, int count) {
+        flush();
+        return delegate.findSimilarFilmIds(filmId, count);
+    }
+
+    @Override
+    public List<Long> findRecommendedFilmIds(Long userId, int count) {
+        flush();
+        return delegate.findRecommendedFilmIds(userId, count);
+    }
+
+    @Override
+    public Map<Long, Map<Long, Boolean>> snapshot() {
+        Map<Long, Map<Long, Boolean>> result = new HashMap<>();
+        for (Shard shard : shards) {
+            shard.copyTo(result, null);
+        }
+        return result;
+    }
+
+    /**
+     * Блокирует только шарды переданных фильмов, шарды без незаписанных изменений пропускаются без блокировки.
+     */
+    @Override
+    public Map<Long, Map<Long, Boolean>> forFilms(Collection<Long> filmIds) {
+        Map<Shard, List<Long>> byShard = new HashMap<>();
+        for (Long filmId : filmIds) {
+            Shard shard = shardOf(filmId);
+            if (shard.buffered > 0) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(filmId);
+            }
+        }
+        Map<Long, Map<Long, Boolean>> result = new HashMap<>();
+        byShard.forEach((shard, ids) -> shard.copyTo(result, ids));
+        return result;
+    }
+
+    /**
+     * Записывает в БД все изменения, принятые до вызова, и ждёт их фиксации.
+     */
+    public void flush() {
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.requestFlush(commits);
+        }
+        await(CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)));
+    }
+
+    /**
+     * Останавливает приём лайков и дожидается записи уже принятых.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.wakeUp();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(settings.commitTimeout().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Отложенная запись лайков остановлена");
+    }
+
+    private void change(LikeChange change) {
+        if (!running) {
+            throw new ServiceUnavailableException("Приём лайков остановлен");
+        }
+        Shard shard = shardOf(change.filmId());
+        Pending entry;
+        try {
+            entry = shard.submit(change);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Ожидание места в буфере лайков прервано");
+        }
+        if (settings.durability() == Durability.SYNC) {
+            awaitCommit(shard, entry);
+        }
+    }
+
+    private Shard shardOf(long filmId) {
+        return shards[(int) Math.floorMod(filmId, (long) shards.length)];
+    }
+
+    /**
+     * Ждёт фиксации изменения в режиме SYNC. Если за {@code commitTimeout} пачка с изменением так и не взята
+     * в запись, изменение убирается из буфера и вызов получает 503 — в БД оно уже не попадёт. Пачку, которая
+     * уже пишется, вызов дожидается: её исход ограничен числом попыток записи.
+     */
+    private void awaitCommit(Shard shard, Pending entry) {
+        boolean interrupted = false;
+        try {
+            entry.commit.get(settings.commitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            cancelOrWait(shard, entry, "Лайк не записан в БД за " + settings.commitTimeout().toMillis() + " мс");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            cancelOrWait(shard, entry, "Ожидание записи лайка прервано");
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void cancelOrWait(Shard shard, Pending entry, String message) {
+        if (shard.cancel(entry)) {
+            ServiceUnavailableException failure = new ServiceUnavailableException(message);
+            entry.commit.completeExceptionally(failure);
+            throw failure;
+        }
+        try {
+            entry.commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void await(CompletableFuture<Void> commit) {
+        try {
+            commit.get(settings.commitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Лайки не записаны в БД за "
+                    + settings.commitTimeout().toMillis() + " мс");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Ожидание записи лайков прервано");
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    private void publish(List<LikeChange> applied) {
+        try {
+            events.publishEvent(new LikesAppliedEvent(applied));
+        } catch (RuntimeException e) {
+            log.error("Не удалось обновить индексы по {} записанным изменениям лайков, "
+                    + "они расходятся с БД до перестройки: {}", applied.size(), e.getMessage(), e);
+        }
+    }
+
+    public enum Durability {
+        /**
+         * Подтверждать лайк после постановки в буфер.
+         */
+        ASYNC,
+        /**
+         * Подтверждать лайк после фиксации пачки, в которую он попал.
+         */
+        SYNC
+    }
+
+    /**
+     * @param shards        число шардов, у каждого свой буфер и поток записи
+     * @param capacity      число незаписанных пар (фильм, пользователь) в буфере шарда
+     * @param batchSize     размер пачки, по достижении которого запись начинается без ожидания интервала
+     * @param flushInterval сколько ждёт первое незаписанное изменение
+     * @param enqueueTimeout сколько вызов ждёт места в переполненном буфере
+     * @param commitTimeout сколько вызов ждёт фиксации в режиме SYNC и при {@link #flush()}
+     * @param durability    когда подтверждать лайк
+     */
+    public record Settings(int shards, int capacity, int batchSize, Duration flushInterval,
+                           Duration enqueueTimeout, Duration commitTimeout, Durability durability) {
+    }
+
+    private record LikeKey(long filmId, long userId) {
+    }
+
+    /**
+     * Незаписанное состояние лайка. Значение меняется только под блокировкой шарда, пока запись в буфере;
+     * ожидающие фиксации получают её через общий {@code commit}.
+     */
+    private static final class Pending {
+        private final LikeKey key;
+        private final CompletableFuture<Void> commit = new CompletableFuture<>();
+        private boolean liked;
+
+        Pending(LikeKey key, boolean liked) {
+            this.key = key;
+            this.liked = liked;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final LinkedHashMap<LikeKey, Pending> pending = new LinkedHashMap<>();
+        /**
+         * Последнее незаписанное состояние каждой пары по фильмам — из буфера или, если там его нет,
+         * из записываемой пачки. По нему читатели получают изменения нужных фильмов без обхода буфера.
+         */
+        private final Map<Long, Map<Long, Pending>> byFilm = new HashMap<>();
+        private final Thread thread;
+        private Map<LikeKey, Pending> inFlight = Map.of();
+        private volatile int buffered;
+        private long firstPendingAt;
+        private boolean flushRequested;
+
+        Shard(int number) {
+            thread = Thread.ofPlatform().daemon().name("like-write-behind-" + number).start(this);
+        }
+
+        /**
+         * Ставит изменение в буфер или схлопывает его с уже стоящим изменением той же пары.
+         */
+        Pending submit(LikeChange change) throws InterruptedException {
+            LikeKey key = new LikeKey(change.filmId(), change.userId());
+            long deadline = System.nanoTime() + settings.enqueueTimeout().toNanos();
+            lock.lock();
+            try {
+                Pending entry = pending.get(key);
+                while (entry == null && pending.size() >= settings.capacity()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new ServiceUnavailableException("Буфер лайков переполнен, повторите позже");
+                    }
+                    notFull.awaitNanos(remaining);
+                    entry = pending.get(key);
+                }
+                if (entry == null) {
+                    if (pending.isEmpty()) {
+                        firstPendingAt = System.nanoTime();
+                    }
+                    entry = new Pending(key, change.liked());
+                    pending.put(key, entry);
+                    index(entry);
+                } else {
+                    entry.liked = change.liked();
+                }
+                if (settings.durability() == Durability.SYNC || pending.size() >= settings.batchSize()) {
+                    flushRequested = true;
+                    notEmpty.signal();
+                } else if (pending.size() == 1) {
+                    notEmpty.signal();
+                }
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Убирает изменение из буфера, если его ещё не взяли в запись.
+         *
+         * @return {@code true}, если изменение убрано и в БД не попадёт
+         */
+        boolean cancel(Pending entry) {
+            lock.lock();
+            try {
+                if (pending.get(entry.key) != entry) {
+                    return false;
+                }
+                pending.remove(entry.key);
+                unindex(entry);
+                notFull.signalAll();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void requestFlush(List<CompletableFuture<Void>> commits) {
+            lock.lock();
+            try {
+                inFlight.values().forEach(entry -> commits.add(entry.commit));
+                pending.values().forEach(entry -> commits.add(entry.commit));
+                if (!pending.isEmpty()) {
+                    flushRequested = true;
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Копирует незаписанные изменения переданных фильмов или, если {@code filmIds == null}, всех фильмов шарда.
+         */
+        void copyTo(Map<Long, Map<Long, Boolean>> result, Collection<Long> filmIds) {
+            if (buffered == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (filmIds == null) {
+                    byFilm.forEach((filmId, users) -> copy(result, filmId, users));
+                } else {
+                    for (Long filmId : filmIds) {
+                        Map<Long, Pending> users = byFilm.get(filmId);
+                        if (users != null) {
+                            copy(result, filmId, users);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void wakeUp() {
+            lock.lock();
+            try {
+                notEmpty.signal();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Map<LikeKey, Pending> batch;
+                lock.lock();
+                try {
+                    batch = takeBatch();
+                    if (batch == null) {
+                        return;
+                    }
+                    inFlight = batch;
+                    notFull.signalAll();
+                } catch (InterruptedException e) {
+                    log.warn("Поток записи лайков прерван, не записано изменений: {}", pending.size());
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+                RuntimeException failure = null;
+                try {
+                    List<LikeChange> applied = write(batch);
+                    // Производные структуры обновляются до того, как пачка пропадёт из PendingLikes,
+                    // поэтому читатель не застанет лайк ни в буфере, ни в кэше.
+                    if (!applied.isEmpty()) {
+                        publish(applied);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                lock.lock();
+                try {
+                    inFlight = Map.of();
+                    batch.values().forEach(this::unindex);
+                } finally {
+                    lock.unlock();
+                }
+                for (Pending entry : batch.values()) {
+                    if (failure == null) {
+                        entry.commit.complete(null);
+                    } else {
+                        entry.commit.completeExceptionally(failure);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ждёт, пока наберётся пачка или истечёт интервал, и забирает из буфера до {@code batchSize} изменений.
+         *
+         * @return {@code null}, если запись остановлена и буфер пуст
+         */
+        private Map<LikeKey, Pending> takeBatch() throws InterruptedException {
+            while (running && !flushRequested) {
+                if (pending.isEmpty()) {
+                    notEmpty.await();
+                    continue;
+                }
+                long remaining = firstPendingAt + settings.flushInterval().toNanos() - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                notEmpty.awaitNanos(remaining);
+            }
+            if (pending.isEmpty()) {
+                flushRequested = false;
+                return running ? takeBatch() : null;
+            }
+            Map<LikeKey, Pending> batch = new LinkedHashMap<>();
+            Iterator<Map.Entry<LikeKey, Pending>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < settings.batchSize()) {
+                Map.Entry<LikeKey, Pending> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+            flushRequested = flushRequested && !pending.isEmpty();
+            return batch;
+        }
+
+        private void index(Pending entry) {
+            Pending previous = byFilm.computeIfAbsent(entry.key.filmId(), filmId -> new HashMap<>())
+                    .put(entry.key.userId(), entry);
+            if (previous == null) {
+                buffered++;
+            }
+        }
+
+        /**
+         * Убирает изменение из индекса по фильмам, если оно там последнее. Вместо отменённого изменения
+         * из буфера в индексе снова оказывается изменение той же пары из записываемой пачки.
+         */
+        private void unindex(Pending entry) {
+            Map<Long, Pending> users = byFilm.get(entry.key.filmId());
+            if (users == null || users.get(entry.key.userId()) != entry) {
+                return;
+            }
+            Pending writing = inFlight.get(entry.key);
+            if (writing != null && writing != entry) {
+                users.put(entry.key.userId(), writing);
+                return;
+            }
+            users.remove(entry.key.userId());
+            buffered--;
+            if (users.isEmpty()) {
+                byFilm.remove(entry.key.filmId());
+            }
+        }
+
+        private static void copy(Map<Long, Map<Long, Boolean>> result, Long filmId, Map<Long, Pending> users) {
+            Map<Long, Boolean> target = result.computeIfAbsent(filmId, key -> new HashMap<>());
+            users.forEach((userId, entry) -> target.put(userId, entry.liked));
+        }
+
+        /**
+         * Записывает пачку, повторяя попытку при ошибке.
+         *
+         * @return изменения, которые действительно поменяли таблицу likes
+         */
+        private List<LikeChange> write(Map<LikeKey, Pending> batch) {
+            List<LikeChange> changes = new ArrayList<>(batch.size());
+            batch.forEach((key, entry) -> changes.add(new LikeChange(key.filmId(), key.userId(), entry.liked)));
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return delegate.applyLikeChanges(changes);
+                } catch (RuntimeException e) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        log.error("Не удалось записать {} изменений лайков за {} попыток, изменения отброшены: {}",
+                                changes.size(), MAX_ATTEMPTS, e.getMessage(), e);
+                        throw e;
+                    }
+                    log.warn("Ошибка записи пачки лайков, попытка {} из {}: {}", attempt, MAX_ATTEMPTS, e.getMessage());
+                    LockSupport.parkNanos(settings.flushInterval().toNanos());
+                }
+            }
+        }
+    }
+}
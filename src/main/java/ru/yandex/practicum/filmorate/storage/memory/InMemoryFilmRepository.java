@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Репозиторий фильмов поверх {@link InMemoryStore}.
+ * Повторяет поведение JDBC-реализации: обновление фильма с пустым списком жанров оставляет прежние жанры.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryFilmRepository implements FilmRepository {
+    private final InMemoryStore store;
+
+    @Override
+    public Collection<Film> findAllFilms() {
+        return store.films.values().stream()
+                .map(store::filmView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<Film> findFilmsPage(long afterId, int limit) {
+        return store.films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(store::filmView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> consumer) {
+        store.films.values().forEach(film -> consumer.accept(store.filmView(film)));
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count) {
+        return store.films.values().stream()
+                .sorted(Comparator.comparingInt((Film film) -> likeCount(film.getId())).reversed()
+                        .thenComparing(Film::getId))
+                .limit(count)
+                .map(store::filmView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count, PopularFilmsFilter filter) {
+        return store.films.values().stream()
+                .filter(filter::matches)
+                .sorted(Comparator.comparingInt((Film film) -> likeCount(film.getId())).reversed()
+                        .thenComparing(Film::getId))
+                .limit(count)
+                .map(store::filmView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        film.setId(store.nextFilmId());
+        store.putFilm(film, film.getGenres());
+        return film;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        films.forEach(this::createFilm);
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film newFilm) {
+        Film current = store.films.get(newFilm.getId());
+        if (current != null) {
+            Set<Genre> genres = newFilm.getGenres();
+            store.putFilm(newFilm, genres == null || genres.isEmpty() ? current.getGenres() : genres);
+        }
+        return newFilm;
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Long id) {
+        return Optional.ofNullable(store.films.get(id)).map(store::filmView);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        return ids.stream()
+                .map(store.films::get)
+                .filter(Objects::nonNull)
+                .map(store::filmView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.films.containsKey(id);
+    }
+
+    private int likeCount(Long filmId) {
+        Set<Long> likes = store.likesByFilm.get(filmId);
+        return likes == null ? 0 : likes.size();
+    }
+}
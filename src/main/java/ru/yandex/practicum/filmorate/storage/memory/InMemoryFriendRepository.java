@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friend.FriendRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий дружеских связей поверх {@link InMemoryStore}. Связь односторонняя: userId → friendId.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryFriendRepository implements FriendRepository {
+    private final InMemoryStore store;
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        store.addFriend(userId, friendId);
+    }
+
+    @Override
+    public void addFriends(List<Friendship> friendships) {
+        friendships.forEach(friendship -> addFriend(friendship.getUserId(), friendship.getFriendId()));
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        store.removeFriend(userId, friendId);
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        return toUsers(friendIds(userId).stream());
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId1, Long userId2) {
+        Set<Long> otherFriendIds = friendIds(userId2);
+        return toUsers(friendIds(userId1).stream().filter(otherFriendIds::contains));
+    }
+
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        store.friendsByUser.forEach((userId, friendIds) -> friendIds.forEach(friendId ->
+                consumer.accept(userId, friendId)));
+    }
+
+    private Set<Long> friendIds(Long userId) {
+        return store.friendsByUser.getOrDefault(userId, Set.of());
+    }
+
+    private List<User> toUsers(Stream<Long> ids) {
+        return ids.sorted()
+                .map(store.users::get)
+                .filter(Objects::nonNull)
+                .map(InMemoryStore::userView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Репозиторий жанров поверх {@link InMemoryStore}: справочник фиксирован, жанры фильма хранятся в самом фильме.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryGenreRepository implements GenreRepository {
+    private final InMemoryStore store;
+
+    @Override
+    public Optional<Genre> findGenreById(Long genreId) {
+        return Optional.ofNullable(InMemoryStore.GENRES.get(genreId)).map(genre -> genre.toBuilder().build());
+    }
+
+    @Override
+    public List<Genre> findAllGenres() {
+        return InMemoryStore.GENRES.values().stream()
+                .map(genre -> genre.toBuilder().build())
+                .toList();
+    }
+
+    @Override
+    public Set<Genre> findGenreByFilmId(Long filmId) {
+        Film film = store.films.get(filmId);
+        return film == null ? InMemoryStore.newGenreSet() : store.filmView(film).getGenres();
+    }
+
+    @Override
+    public Map<Long, Set<Genre>> findAllFilmGenres() {
+        return findGenresByFilmIds(store.films.keySet());
+    }
+
+    @Override
+    public Map<Long, Set<Genre>> findGenresByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        filmIds.forEach(filmId -> {
+            Set<Genre> genres = findGenreByFilmId(filmId);
+            if (!genres.isEmpty()) {
+                genresByFilm.put(filmId, genres);
+            }
+        });
+        return genresByFilm;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Репозиторий лайков поверх {@link InMemoryStore}.
+ * Число лайков фильма — размер его множества лайков, отдельный счётчик не хранится и разойтись не может.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryLikeRepository implements LikeRepository {
+    private final InMemoryStore store;
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return store.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return store.removeLike(filmId, userId);
+    }
+
+    @Override
+    public int repairLikeCounts() {
+        return 0;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        store.likesByFilm.forEach((filmId, userIds) -> userIds.forEach(userId -> consumer.accept(filmId, userId)));
+    }
+
+    /**
+     * Обходит все лайки; используется, только пока не построен граф лайков в памяти.
+     */
+    @Override
+    public List<Long> findSimilarFilmIds(Long filmId, int count) {
+        Set<Long> users = store.likesByFilm.getOrDefault(filmId, Set.of());
+        Map<Long, Long> scores = new HashMap<>();
+        store.likesByFilm.forEach((otherFilmId, userIds) -> {
+            long common = userIds.stream().filter(users::contains).count();
+            if (!otherFilmId.equals(filmId) && common > 0) {
+                scores.put(otherFilmId, common);
+            }
+        });
+        return top(scores, count);
+    }
+
+    /**
+     * Обходит все лайки; используется, только пока не построен граф лайков в памяти.
+     */
+    @Override
+    public List<Long> findRecommendedFilmIds(Long userId, int count) {
+        Map<Long, Set<Long>> filmsByUser = new HashMap<>();
+        forEachLike((filmId, likedBy) -> filmsByUser.computeIfAbsent(likedBy, id -> new HashSet<>()).add(filmId));
+        Set<Long> liked = filmsByUser.getOrDefault(userId, Set.of());
+        Map<Long, Long> scores = new HashMap<>();
+        for (Long likedFilmId : liked) {
+            for (Long neighbour : store.likesByFilm.getOrDefault(likedFilmId, Set.of())) {
+                if (!neighbour.equals(userId)) {
+                    filmsByUser.getOrDefault(neighbour, Set.of()).stream()
+                            .filter(filmId -> !liked.contains(filmId))
+                            .forEach(filmId -> scores.merge(filmId, 1L, Long::sum));
+                }
+            }
+        }
+        return top(scores, count);
+    }
+
+    private static List<Long> top(Map<Long, Long> scores, int count) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий рейтингов MPA для профиля {@code in-memory}: справочник фиксирован и совпадает с data.sql.
+ */
+@Repository
+@Profile("in-memory")
+public class InMemoryMpaRepository implements MpaRepository {
+
+    @Override
+    public Optional<MpaRating> findMpaById(Long mpaId) {
+        return Optional.ofNullable(InMemoryStore.MPA_RATINGS.get(mpaId)).map(mpa -> mpa.toBuilder().build());
+    }
+
+    @Override
+    public List<MpaRating> findAllMpa() {
+        return InMemoryStore.MPA_RATINGS.values().stream()
+                .map(mpa -> mpa.toBuilder().build())
+                .toList();
+    }
+}
@@ -0,0 +1,487 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище данных в памяти для профиля {@code in-memory}.
+ * Фильмы и пользователи лежат в {@link ConcurrentSkipListMap}, упорядоченных по ID (нужно для keyset-пагинации),
+ * лайки и друзья — в {@link ConcurrentHashMap} конкурентных множеств ID, ID выдаются атомарными счётчиками.
+ * Справочники жанров и рейтингов MPA совпадают с data.sql.
+ *
+ * <p>Если задан filmorate.in-memory.data-dir, хранилище долговечно: каждое изменение добавляется
+ * в {@link WriteAheadLog} и применяется в памяти под одной блокировкой (порядок в журнале совпадает
+ * с порядком применения),
+ * после чего вызывающий поток ждёт группового сброса журнала на диск. Периодически и при остановке пишется
+ * снимок через отображение файла в память; при старте загружается последний снимок и проигрывается журнал после него.
+ * Снимок пишется без остановки записи, поэтому может содержать и часть изменений после своего LSN —
+ * это безопасно, так как все записи журнала идемпотентны (задают итоговое значение, а не приращение).
+ */
+@Slf4j
+@Component
+@Profile("in-memory")
+public class InMemoryStore {
+    static final Map<Long, Genre> GENRES = referenceMap(List.of(
+            new Genre(1L, "Комедия"),
+            new Genre(2L, "Драма"),
+            new Genre(3L, "Мультфильм"),
+            new Genre(4L, "Триллер"),
+            new Genre(5L, "Документальный"),
+            new Genre(6L, "Боевик")), Genre::getId);
+
+    static final Map<Long, MpaRating> MPA_RATINGS = referenceMap(List.of(
+            new MpaRating(1L, "G"),
+            new MpaRating(2L, "PG"),
+            new MpaRating(3L, "PG-13"),
+            new MpaRating(4L, "R"),
+            new MpaRating(5L, "NC-17")), MpaRating::getId);
+
+    private static final byte PUT_FILM = 1;
+    private static final byte PUT_USER = 2;
+    private static final byte DELETE_USER = 3;
+    private static final byte ADD_LIKE = 4;
+    private static final byte REMOVE_LIKE = 5;
+    private static final byte ADD_FRIEND = 6;
+    private static final byte REMOVE_FRIEND = 7;
+    private static final byte END_OF_SNAPSHOT = 0;
+    private static final long NOT_CHANGED = -1;
+
+    private static final int SNAPSHOT_MAGIC = 0x464D5331;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    final NavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    final NavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    final Map<Long, Set<Long>> likesByFilm = new ConcurrentHashMap<>();
+    final Map<Long, Set<Long>> friendsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Индексы уникальных логинов и email. Изменяются вместе с {@link #users} под {@link #userLock}.
+     */
+    final Map<String, Long> userIdsByLogin = new HashMap<>();
+    final Map<String, Long> userIdsByEmail = new HashMap<>();
+    final Object userLock = new Object();
+
+    private final AtomicLong filmSequence = new AtomicLong();
+    private final AtomicLong userSequence = new AtomicLong();
+
+    private final Path dataDir;
+    private final boolean fsync;
+    private final ReentrantLock mutationLock = new ReentrantLock();
+    private final Object checkpointLock = new Object();
+    private volatile WriteAheadLog wal;
+
+    public InMemoryStore(@Value("${filmorate.in-memory.data-dir:}") String dataDir,
+                         @Value("${filmorate.in-memory.wal.fsync:true}") boolean fsync) {
+        this.dataDir = dataDir.isBlank() ? null : Path.of(dataDir);
+        this.fsync = fsync;
+    }
+
+    long nextFilmId() {
+        return filmSequence.incrementAndGet();
+    }
+
+    long nextUserId() {
+        return userSequence.incrementAndGet();
+    }
+
+    /**
+     * Сохраняет фильм с заданным ID. Жанры и рейтинг приводятся к записям справочника, лайки хранятся отдельно.
+     */
+    void putFilm(Film film, Set<Genre> genres) {
+        Film stored = toStoredFilm(film, genres);
+        commit(stage(PUT_FILM, out -> StoreCodec.writeFilm(out, stored), () -> applyPutFilm(stored)));
+    }
+
+    /**
+     * Сохраняет пользователя с заданным ID и обновляет индексы логинов и email.
+     */
+    public void putUser(User user) {
+        long lsn;
+        synchronized (userLock) {
+            lsn = stageUser(user);
+        }
+        commit(lsn);
+    }
+
+    /**
+     * Применяет сохранение пользователя и ставит его в журнал, не дожидаясь сброса на диск.
+     * Вызывается под {@link #userLock} после проверки уникальности; затем вызывающий код
+     * вызывает {@link #commit(long)} уже вне блокировки, чтобы ожидание диска не задерживало других.
+     */
+    long stageUser(User user) {
+        User stored = user.toBuilder().friends(null).build();
+        return stage(PUT_USER, out -> StoreCodec.writeUser(out, stored), () -> applyPutUser(stored));
+    }
+
+    /**
+     * Удаляет пользователя вместе с его лайками и дружескими связями (аналог ON DELETE CASCADE).
+     */
+    boolean deleteUser(Long userId) {
+        long lsn;
+        synchronized (userLock) {
+            lsn = stage(DELETE_USER, out -> out.writeLong(userId), () -> applyDeleteUser(userId));
+        }
+        return commit(lsn);
+    }
+
+    boolean addLike(Long filmId, Long userId) {
+        return commit(stage(ADD_LIKE, out -> writePair(out, filmId, userId), () -> applyAddLike(filmId, userId)));
+    }
+
+    boolean removeLike(Long filmId, Long userId) {
+        return commit(stage(REMOVE_LIKE, out -> writePair(out, filmId, userId),
+                () -> applyRemoveLike(filmId, userId)));
+    }
+
+    boolean addFriend(Long userId, Long friendId) {
+        return commit(stage(ADD_FRIEND, out -> writePair(out, userId, friendId),
+                () -> applyAddFriend(userId, friendId)));
+    }
+
+    boolean removeFriend(Long userId, Long friendId) {
+        return commit(stage(REMOVE_FRIEND, out -> writePair(out, userId, friendId),
+                () -> applyRemoveFriend(userId, friendId)));
+    }
+
+    /**
+     * Ждёт сброса записи журнала, полученной из {@link #stageUser(User)} или другой операции.
+     *
+     * @return false, если операция ничего не изменила
+     */
+    boolean commit(long lsn) {
+        if (lsn == NOT_CHANGED) {
+            return false;
+        }
+        WriteAheadLog journal = wal;
+        if (lsn > 0 && journal != null) {
+            journal.awaitDurable(lsn);
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает копию фильма с актуальными лайками: хранимые объекты наружу не отдаются.
+     */
+    Film filmView(Film stored) {
+        Set<Long> likes = likesByFilm.get(stored.getId());
+        Set<Genre> genres = newGenreSet();
+        stored.getGenres().forEach(genre -> genres.add(genre.toBuilder().build()));
+        return stored.toBuilder()
+                .mpa(stored.getMpa() == null ? null : stored.getMpa().toBuilder().build())
+                .genres(genres)
+                .likes(likes == null ? new HashSet<>() : new HashSet<>(likes))
+                .build();
+    }
+
+    static User userView(User stored) {
+        return stored.toBuilder().build();
+    }
+
+    static Set<Genre> newGenreSet() {
+        return new TreeSet<>(Comparator.comparingLong(Genre::getId));
+    }
+
+    /**
+     * Удаляет все данные и сбрасывает последовательности ID. Справочники не меняются.
+     * Очистка не журналируется и предназначена для хранилища без каталога данных (тесты).
+     */
+    public void clear() {
+        synchronized (userLock) {
+            films.clear();
+            users.clear();
+            likesByFilm.clear();
+            friendsByUser.clear();
+            userIdsByLogin.clear();
+            userIdsByEmail.clear();
+            filmSequence.set(0);
+            userSequence.set(0);
+        }
+    }
+
+    /**
+     * Восстанавливает данные из последнего снимка и журнала после него и открывает журнал для записи.
+     */
+    @PostConstruct
+    public void open() {
+        if (dataDir == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(dataDir);
+            long snapshotLsn = loadLatestSnapshot();
+            long lastLsn = WriteAheadLog.replay(dataDir, snapshotLsn, this::apply);
+            wal = new WriteAheadLog(dataDir, lastLsn, fsync);
+            log.info("Хранилище восстановлено из {}: снимок до LSN {}, журнал до LSN {}, фильмов {}, пользователей {}",
+                    dataDir, snapshotLsn, lastLsn, films.size(), users.size());
+        } catch (IOException e) {
+            throw new InternalServerException("Не удалось восстановить хранилище из " + dataDir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Пишет снимок данных и удаляет покрытые им сегменты журнала и старые снимки.
+     * Снимок пишется во временный файл и атомарно переименовывается, поэтому сбой не портит предыдущий снимок.
+     */
+    @Scheduled(initialDelayString = "${filmorate.in-memory.snapshot-interval-ms:300000}",
+            fixedDelayString = "${filmorate.in-memory.snapshot-interval-ms:300000}")
+    public void checkpoint() {
+        WriteAheadLog journal = wal;
+        if (journal == null) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            long lsn = journal.rotate();
+            Path snapshot = dataDir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+            Path tempFile = dataDir.resolve(snapshot.getFileName() + ".tmp");
+            try {
+                writeSnapshot(tempFile, lsn);
+                Files.move(tempFile, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                for (Path path : snapshots()) {
+                    if (lsnOf(path) < lsn) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+                journal.deleteClosedSegments();
+                log.info("Снимок хранилища {} сохранён: фильмов {}, пользователей {}", snapshot, films.size(),
+                        users.size());
+            } catch (IOException e) {
+                log.error("Не удалось сохранить снимок хранилища {}", snapshot, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        WriteAheadLog journal = wal;
+        if (journal == null) {
+            return;
+        }
+        checkpoint();
+        wal = null;
+        journal.close();
+    }
+
+    /**
+     * Добавляет изменение в журнал и применяет его под одной блокировкой, чтобы порядок записей в журнале
+     * совпадал с порядком применения. Запись добавляется до применения: если журнал недоступен, изменение
+     * не попадает в память и не пропадает после перезапуска. Изменение, которое ничего не поменяло,
+     * остаётся в журнале лишней записью — при проигрывании она так же ничего не меняет.
+     *
+     * @return LSN записи, 0 без журнала или {@link #NOT_CHANGED}, если изменение ничего не поменяло
+     */
+    private long stage(byte type, StoreCodec.Writer payload, BooleanSupplier change) {
+        WriteAheadLog journal = wal;
+        if (journal == null) {
+            return change.getAsBoolean() ? 0 : NOT_CHANGED;
+        }
+        byte[] bytes = StoreCodec.encode(payload);
+        mutationLock.lock();
+        try {
+            long lsn = journal.append(type, bytes);
+            return change.getAsBoolean() ? lsn : NOT_CHANGED;
+        } finally {
+            mutationLock.unlock();
+        }
+    }
+
+    private void apply(byte type, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        switch (type) {
+            case PUT_FILM -> applyPutFilm(toStoredFilm(StoreCodec.readFilm(in), null));
+            case PUT_USER -> applyPutUser(StoreCodec.readUser(in));
+            case DELETE_USER -> applyDeleteUser(in.readLong());
+            case ADD_LIKE -> applyAddLike(in.readLong(), in.readLong());
+            case REMOVE_LIKE -> applyRemoveLike(in.readLong(), in.readLong());
+            case ADD_FRIEND -> applyAddFriend(in.readLong(), in.readLong());
+            case REMOVE_FRIEND -> applyRemoveFriend(in.readLong(), in.readLong());
+            default -> throw new IOException("Неизвестный тип записи " + type);
+        }
+    }
+
+    private boolean applyPutFilm(Film stored) {
+        films.put(stored.getId(), stored);
+        filmSequence.accumulateAndGet(stored.getId(), Math::max);
+        return true;
+    }
+
+    private boolean applyPutUser(User stored) {
+        synchronized (userLock) {
+            User previous = users.put(stored.getId(), stored);
+            if (previous != null) {
+                userIdsByLogin.remove(previous.getLogin());
+                userIdsByEmail.remove(previous.getEmail());
+            }
+            userIdsByLogin.put(stored.getLogin(), stored.getId());
+            userIdsByEmail.put(stored.getEmail(), stored.getId());
+            userSequence.accumulateAndGet(stored.getId(), Math::max);
+        }
+        return true;
+    }
+
+    private boolean applyDeleteUser(Long userId) {
+        synchronized (userLock) {
+            User removed = users.remove(userId);
+            if (removed == null) {
+                return false;
+            }
+            userIdsByLogin.remove(removed.getLogin());
+            userIdsByEmail.remove(removed.getEmail());
+        }
+        friendsByUser.remove(userId);
+        friendsByUser.values().forEach(friendIds -> friendIds.remove(userId));
+        likesByFilm.values().forEach(userIds -> userIds.remove(userId));
+        return true;
+    }
+
+    private boolean applyAddLike(Long filmId, Long userId) {
+        return likesByFilm.computeIfAbsent(filmId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+    }
+
+    private boolean applyRemoveLike(Long filmId, Long userId) {
+        Set<Long> userIds = likesByFilm.get(filmId);
+        return userIds != null && userIds.remove(userId);
+    }
+
+    private boolean applyAddFriend(Long userId, Long friendId) {
+        return friendsByUser.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(friendId);
+    }
+
+    private boolean applyRemoveFriend(Long userId, Long friendId) {
+        Set<Long> friendIds = friendsByUser.get(userId);
+        return friendIds != null && friendIds.remove(friendId);
+    }
+
+    /**
+     * Формат снимка: заголовок (сигнатура, LSN, последовательности ID), затем записи в формате журнала
+     * {@code [тип][длина][данные]} — фильмы, пользователи, лайки, друзья — и завершающий {@link #END_OF_SNAPSHOT}.
+     */
+    private void writeSnapshot(Path file, long lsn) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new MappedFileOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(lsn);
+            out.writeLong(filmSequence.get());
+            out.writeLong(userSequence.get());
+            for (Film film : films.values()) {
+                writeEntry(out, PUT_FILM, StoreCodec.encode(entry -> StoreCodec.writeFilm(entry, film)));
+            }
+            for (User user : users.values()) {
+                writeEntry(out, PUT_USER, StoreCodec.encode(entry -> StoreCodec.writeUser(entry, user)));
+            }
+            writePairs(out, ADD_LIKE, likesByFilm);
+            writePairs(out, ADD_FRIEND, friendsByUser);
+            out.writeByte(END_OF_SNAPSHOT);
+        }
+    }
+
+    private long loadLatestSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        Path latest = snapshots.get(snapshots.size() - 1);
+        try (DataInputStream in = new DataInputStream(new MappedFileInputStream(latest))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Неизвестный формат снимка " + latest);
+            }
+            long lsn = in.readLong();
+            filmSequence.set(in.readLong());
+            userSequence.set(in.readLong());
+            for (byte type = in.readByte(); type != END_OF_SNAPSHOT; type = in.readByte()) {
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                apply(type, payload);
+            }
+            return lsn;
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long lsnOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static void writeEntry(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private static void writePairs(DataOutputStream out, byte type, Map<Long, Set<Long>> pairs) throws IOException {
+        for (Map.Entry<Long, Set<Long>> entry : pairs.entrySet()) {
+            for (Long secondId : entry.getValue()) {
+                writeEntry(out, type, StoreCodec.encode(pair -> writePair(pair, entry.getKey(), secondId)));
+            }
+        }
+    }
+
+    private static void writePair(DataOutput out, long firstId, long secondId) throws IOException {
+        out.writeLong(firstId);
+        out.writeLong(secondId);
+    }
+
+    private static Film toStoredFilm(Film film, Set<Genre> genres) {
+        Set<Genre> source = genres != null ? genres : film.getGenres();
+        Set<Genre> resolved = newGenreSet();
+        if (source != null) {
+            source.forEach(genre -> resolved.add(GENRES.getOrDefault(genre.getId(), genre).toBuilder().build()));
+        }
+        MpaRating mpa = film.getMpa() == null ? null
+                : MPA_RATINGS.getOrDefault(film.getMpa().getId(), film.getMpa()).toBuilder().build();
+        return film.toBuilder().mpa(mpa).genres(resolved).likes(null).build();
+    }
+
+    private static <T> Map<Long, T> referenceMap(List<T> values, Function<T, Long> idOf) {
+        Map<Long, T> map = new LinkedHashMap<>();
+        values.forEach(value -> map.put(idOf.apply(value), value));
+        return Collections.unmodifiableMap(map);
+    }
+}
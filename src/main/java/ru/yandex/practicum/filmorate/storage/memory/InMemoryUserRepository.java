@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Репозиторий пользователей поверх {@link InMemoryStore}.
+ * Уникальность логина и email проверяется так же, как ограничениями UNIQUE в БД: нарушение даёт
+ * {@link DuplicateKeyException}. Удаление пользователя убирает его лайки и дружеские связи (аналог ON DELETE CASCADE).
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryUserRepository implements UserRepository {
+    private final InMemoryStore store;
+
+    @Override
+    public Collection<User> findAllUsers() {
+        return store.users.values().stream()
+                .map(InMemoryStore::userView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public List<User> findUsersPage(long afterId, int limit) {
+        return store.users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(InMemoryStore::userView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        store.users.values().forEach(user -> consumer.accept(InMemoryStore.userView(user)));
+    }
+
+    @Override
+    public User createUser(User user) {
+        long lsn;
+        synchronized (store.userLock) {
+            checkUnique(user, null);
+            user.setId(store.nextUserId());
+            lsn = store.stageUser(user);
+        }
+        store.commit(lsn);
+        return user;
+    }
+
+    /**
+     * Сохраняет пользователей с семантикой upsert по логину, как MERGE ... KEY (login) в JDBC-реализации.
+     * Пользователь, созданный раньше в этой же пачке, в возвращаемые ID существовавших не попадает.
+     */
+    @Override
+    public Set<Long> upsertUsers(List<User> users) {
+        long lsn = 0;
+        Set<Long> createdIds = new HashSet<>();
+        Set<Long> existingIds = new HashSet<>();
+        synchronized (store.userLock) {
+            for (User user : users) {
+                Long existingId = store.userIdsByLogin.get(user.getLogin());
+                checkUnique(user, existingId);
+                if (existingId == null) {
+                    user.setId(store.nextUserId());
+                    createdIds.add(user.getId());
+                } else {
+                    user.setId(existingId);
+                    if (!createdIds.contains(existingId)) {
+                        existingIds.add(existingId);
+                    }
+                }
+                lsn = Math.max(lsn, store.stageUser(user));
+            }
+        }
+        store.commit(lsn);
+        return existingIds;
+    }
+
+    @Override
+    public User updateUser(User newUser) {
+        long lsn = 0;
+        synchronized (store.userLock) {
+            if (store.users.containsKey(newUser.getId())) {
+                checkUnique(newUser, newUser.getId());
+                lsn = store.stageUser(newUser);
+            }
+        }
+        store.commit(lsn);
+        return newUser;
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return Optional.ofNullable(store.users.get(id)).map(InMemoryStore::userView);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        return ids.stream()
+                .map(store.users::get)
+                .filter(Objects::nonNull)
+                .map(InMemoryStore::userView)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.users.containsKey(id);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return ids.stream()
+                .filter(store.users::containsKey)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        return store.deleteUser(id);
+    }
+
+    private void checkUnique(User user, Long ownId) {
+        Long loginOwner = store.userIdsByLogin.get(user.getLogin());
+        if (loginOwner != null && !loginOwner.equals(ownId)) {
+            throw new DuplicateKeyException("Логин " + user.getLogin() + " уже занят");
+        }
+        Long emailOwner = store.userIdsByEmail.get(user.getEmail());
+        if (emailOwner != null && !emailOwner.equals(ownId)) {
+            throw new DuplicateKeyException("Email " + user.getEmail() + " уже занят");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение файла через отображение в память окнами по {@link MappedFileOutputStream#WINDOW_BYTES}:
+ * данные снимка не копируются через буферы ядра, а читаются прямо из страничного кэша.
+ */
+final class MappedFileInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileInputStream(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(MappedFileOutputStream.WINDOW_BYTES, size));
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureAvailable() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int chunk = Math.min(length, window.remaining());
+        window.get(bytes, offset, chunk);
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (window.hasRemaining()) {
+            return true;
+        }
+        windowStart += window.capacity();
+        if (windowStart >= size) {
+            return false;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                Math.min(MappedFileOutputStream.WINDOW_BYTES, size - windowStart));
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись файла через отображение в память. Файл отображается окнами по {@link #WINDOW_BYTES}:
+ * когда окно заполнено, оно сбрасывается на диск и отображается следующее.
+ * При закрытии файл обрезается до фактически записанного размера и сбрасывается на диск.
+ */
+final class MappedFileOutputStream extends OutputStream {
+    static final long WINDOW_BYTES = 8L << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedFileOutputStream(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_BYTES);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureRemaining();
+        window.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureRemaining();
+            int chunk = Math.min(length, window.remaining());
+            window.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (window == null) {
+            return;
+        }
+        long size = windowStart + window.position();
+        window.force();
+        window = null;
+        try (channel) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    private void ensureRemaining() throws IOException {
+        if (!window.hasRemaining()) {
+            window.force();
+            windowStart += WINDOW_BYTES;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, WINDOW_BYTES);
+        }
+    }
+}
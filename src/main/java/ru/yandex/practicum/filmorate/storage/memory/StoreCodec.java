@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Двоичное представление фильмов и пользователей для журнала и снимков хранилища в памяти.
+ * Жанры и рейтинг MPA записываются только идентификаторами: названия берутся из справочника при чтении.
+ */
+final class StoreCodec {
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private StoreCodec() {
+    }
+
+    static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeFilm(DataOutput out, Film film) throws IOException {
+        out.writeLong(film.getId());
+        out.writeUTF(film.getName());
+        writeNullableString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+        out.writeLong(film.getMpa() == null ? 0 : film.getMpa().getId());
+        out.writeInt(film.getGenres().size());
+        for (Genre genre : film.getGenres()) {
+            out.writeLong(genre.getId());
+        }
+    }
+
+    static Film readFilm(DataInput in) throws IOException {
+        Film film = Film.builder()
+                .id(in.readLong())
+                .name(in.readUTF())
+                .description(readNullableString(in))
+                .releaseDate(readDate(in))
+                .duration(in.readInt())
+                .build();
+        long mpaId = in.readLong();
+        film.setMpa(mpaId == 0 ? null : new MpaRating(mpaId, null));
+        int genreCount = in.readInt();
+        Set<Genre> genres = new HashSet<>();
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(new Genre(in.readLong(), null));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        out.writeUTF(user.getEmail());
+        out.writeUTF(user.getLogin());
+        writeNullableString(out, user.getName());
+        writeDate(out, user.getBirthday());
+    }
+
+    static User readUser(DataInput in) throws IOException {
+        return User.builder()
+                .id(in.readLong())
+                .email(in.readUTF())
+                .login(in.readUTF())
+                .name(readNullableString(in))
+                .birthday(readDate(in))
+                .build();
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @FunctionalInterface
+    interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+}
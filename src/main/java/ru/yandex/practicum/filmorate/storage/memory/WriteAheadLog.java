@@ -0,0 +1,345 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи (WAL) хранилища в памяти.
+ * Журнал состоит из сегментов {@code wal-<первый LSN>.log}; запись сегмента — {@code [длина][CRC32][LSN][тип][данные]}.
+ * Записи копятся в буфере, фоновый поток сбрасывает их пачками (group commit): один write и один fsync
+ * на все записи, накопленные за время предыдущего сброса. Вызывающий поток ждёт сброса своей записи
+ * в {@link #awaitDurable(long)}.
+ */
+@Slf4j
+final class WriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MIN_BODY_BYTES = Long.BYTES + 1;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final Path dir;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread writer;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel segment;
+    private long segmentStartLsn;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean rotationRequested;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Открывает новый сегмент, продолжающий журнал после lastLsn, и запускает поток сброса.
+     */
+    WriteAheadLog(Path dir, long lastLsn, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        openSegment(lastLsn + 1);
+        this.writer = Thread.ofPlatform().name("in-memory-wal").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Добавляет запись в буфер журнала и возвращает её LSN. Запись ещё не на диске — см. {@link #awaitDurable(long)}.
+     */
+    long append(byte type, byte[] payload) {
+        int bodyLength = MIN_BODY_BYTES + payload.length;
+        if (bodyLength > MAX_BODY_BYTES) {
+            throw new InternalServerException("Запись журнала превышает " + MAX_BODY_BYTES + " байт");
+        }
+        lock.lock();
+        try {
+            while (rotationRequested) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            long lsn = ++lastLsn;
+            ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength)
+                    .putInt(bodyLength)
+                    .putInt(0)
+                    .putLong(lsn)
+                    .put(type)
+                    .put(payload);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), HEADER_BYTES, bodyLength);
+            record.putInt(Integer.BYTES, (int) crc.getValue());
+            pending.write(record.array(), 0, record.capacity());
+            pendingAvailable.signal();
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока запись с указанным LSN будет записана в файл (и сброшена на диск, если включён fsync).
+     */
+    void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durableLsn < lsn) {
+                checkFailure();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает накопленные записи, закрывает текущий сегмент и начинает новый.
+     *
+     * @return LSN последней записи в закрытых сегментах
+     */
+    long rotate() {
+        lock.lock();
+        try {
+            while (rotationRequested) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            long boundary = lastLsn;
+            rotationRequested = true;
+            pendingAvailable.signal();
+            while (rotationRequested && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            return boundary;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет сегменты, предшествующие текущему. Вызывается после того, как снимок покрыл их записи.
+     */
+    void deleteClosedSegments() throws IOException {
+        long currentStart;
+        lock.lock();
+        try {
+            currentStart = segmentStartLsn;
+        } finally {
+            lock.unlock();
+        }
+        for (Path path : segments(dir)) {
+            if (startLsnOf(path) < currentStart) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.force(false);
+        segment.close();
+    }
+
+    /**
+     * Последовательно читает все сегменты и передаёт обработчику записи с LSN больше afterLsn.
+     * Проигрывание останавливается на первой неполной или повреждённой записи: она могла остаться
+     * от сбоя во время записи и не была подтверждена вызывающему коду, а записи после неё нельзя применять
+     * в обход пропущенной. Сегмент обрезается до последней целой записи, а следующие за ним сегменты
+     * переименовываются в {@code *.corrupt}, чтобы новый сегмент журнала продолжил целую часть.
+     *
+     * @return LSN последней применённой записи (afterLsn, если таких нет)
+     */
+    static long replay(Path dir, long afterLsn, RecordHandler handler) throws IOException {
+        long lastLsn = afterLsn;
+        List<Path> segments = segments(dir);
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long validBytes = 0;
+            String damage = null;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (damage == null) {
+                    byte[] header = in.readNBytes(HEADER_BYTES);
+                    if (header.length == 0) {
+                        break;
+                    }
+                    if (header.length < HEADER_BYTES) {
+                        damage = "неполный заголовок записи";
+                        break;
+                    }
+                    ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+                    int bodyLength = headerBuffer.getInt();
+                    int checksum = headerBuffer.getInt();
+                    if (bodyLength < MIN_BODY_BYTES || bodyLength > MAX_BODY_BYTES) {
+                        damage = "некорректная длина записи " + bodyLength;
+                        break;
+                    }
+                    byte[] body = in.readNBytes(bodyLength);
+                    CRC32 crc = new CRC32();
+                    crc.update(body);
+                    if (body.length < bodyLength) {
+                        damage = "неполная запись";
+                    } else if ((int) crc.getValue() != checksum) {
+                        damage = "неверная контрольная сумма";
+                    } else {
+                        ByteBuffer record = ByteBuffer.wrap(body);
+                        long lsn = record.getLong();
+                        byte type = record.get();
+                        if (lsn > lastLsn) {
+                            byte[] payload = new byte[record.remaining()];
+                            record.get(payload);
+                            handler.apply(type, payload);
+                            lastLsn = lsn;
+                        }
+                        validBytes += HEADER_BYTES + bodyLength;
+                    }
+                }
+            }
+            if (damage != null) {
+                log.warn("Сегмент {}: {} после LSN {}, проигрывание журнала остановлено", path, damage, lastLsn);
+                discardTail(path, validBytes, segments.subList(i + 1, segments.size()));
+                break;
+            }
+        }
+        return lastLsn;
+    }
+
+    /**
+     * Обрезает сегмент до целых записей и убирает из журнала следующие сегменты, сохраняя их для разбора.
+     */
+    private static void discardTail(Path segment, long validBytes, List<Path> following) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            channel.force(false);
+        }
+        for (Path path : following) {
+            Path moved = path.resolveSibling(path.getFileName() + ".corrupt");
+            Files.move(path, moved, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("Сегмент {} идёт после повреждённой записи и перенесён в {}", path, moved);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            byte[] batch;
+            long batchLsn;
+            boolean rotate;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !rotationRequested && !closed) {
+                    pendingAvailable.awaitUninterruptibly();
+                }
+                if (pending.size() == 0 && !rotationRequested) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream(Math.max(32, batch.length));
+                batchLsn = lastLsn;
+                rotate = rotationRequested;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                if (fsync || rotate) {
+                    segment.force(false);
+                }
+                if (rotate) {
+                    segment.close();
+                    openSegment(batchLsn + 1);
+                }
+            } catch (IOException e) {
+                log.error("Не удалось записать журнал хранилища", e);
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableLsn = batchLsn;
+                }
+                if (rotate) {
+                    rotationRequested = false;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    private void openSegment(long startLsn) throws IOException {
+        segment = FileChannel.open(dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, startLsn, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentStartLsn = startLsn;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new InternalServerException("Журнал хранилища недоступен: " + failure.getMessage());
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long startLsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void apply(byte type, byte[] payload) throws IOException;
+    }
+}
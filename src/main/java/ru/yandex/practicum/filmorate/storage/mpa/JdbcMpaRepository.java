@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
@@ -16,6 +17,7 @@ import java.util.Optional;
  * Позволяет получить все рейтинги или конкретный по ID.
  */
 @Repository
+@Profile("!in-memory")
 public class JdbcMpaRepository extends BaseNamedParameterRepository<MpaRating> implements MpaRepository {
 
     private static final String FIND_ALL_QUERY = "SELECT * FROM mpa_ratings";
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Кэширующая обёртка над репозиторием пользователей.
+ * Чтение по ID, пакетная загрузка и проверка существования обслуживаются из {@link EntityCache},
+ * любые изменения пользователей инвалидируют соответствующие записи.
+ */
+@Primary
+@Repository
+@Profile("!in-memory")
+public class CachingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final EntityCache<Long, User> userCache;
+
+    public CachingUserRepository(@Qualifier("userRepository") UserRepository delegate,
+                                 EntityCache<Long, User> userCache) {
+        this.delegate = delegate;
+        this.userCache = userCache;
+    }
+
+    @Override
+    public Collection<User> findAllUsers() {
+        return delegate.findAllUsers();
+    }
+
+    @Override
+    public List<User> findUsersPage(long afterId, int limit) {
+        return delegate.findUsersPage(afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        delegate.forEachUser(consumer);
+    }
+
+    @Override
+    public User createUser(User user) {
+        return delegate.createUser(user);
+    }
+
+    @Override
+    public Set<Long> upsertUsers(List<User> users) {
+        Set<Long> updatedIds = delegate.upsertUsers(users);
+        userCache.invalidateAll(users.stream().map(User::getId).toList());
+        return updatedIds;
+    }
+
+    @Override
+    public User updateUser(User newUser) {
+        try {
+            return delegate.updateUser(newUser);
+        } finally {
+            userCache.invalidate(newUser.getId());
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return userCache.get(id, delegate::getUserById);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        return userCache.getAll(ids, delegate::getUsersByIds, User::getId);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return userCache.contains(id) || delegate.existsById(id);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        try {
+            return delegate.deleteUser(id);
+        } finally {
+            userCache.invalidate(id);
+        }
+    }
+}
@@ -1,28 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.base.BaseNamedParameterRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Репозиторий для работы с пользователями в БД.
  * Реализует операции: создание, обновление, удаление, поиск по ID, получение всех пользователей.
  */
 @Repository
+@Profile("!in-memory")
 @Qualifier("userRepository")
 public class JdbcUserRepository extends BaseNamedParameterRepository<User> implements UserRepository {
     private static final String FIND_ALL_USERS_QUERY = "SELECT * FROM users ORDER BY user_id";
+    private static final String FIND_USERS_PAGE_QUERY = "SELECT * FROM users WHERE user_id > :afterId " +
+            "ORDER BY user_id LIMIT :limit";
     private static final String FIND_USER_BY_ID_QUERY = "SELECT * FROM users WHERE user_id = :userId";
+    private static final String FIND_USERS_BY_IDS_QUERY = "SELECT * FROM users WHERE user_id IN (:userIds)";
+    private static final String EXISTS_USER_BY_ID_QUERY = "SELECT EXISTS(SELECT 1 FROM users WHERE user_id = :userId)";
     private static final String INSERT_USERS_QUERY = "INSERT INTO users (email, login, name, birthday)" +
             "VALUES (:email, :login, :name, :birthday)";
+    private static final String UPSERT_USER_QUERY = "MERGE INTO users (email, login, name, birthday) KEY (login) " +
+            "VALUES (:email, :login, :name, :birthday)";
+    private static final String FIND_IDS_BY_LOGINS_QUERY = "SELECT user_id, login FROM users WHERE login IN (:logins)";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT user_id FROM users WHERE user_id IN (:userIds)";
     private static final String UPDATE_USER_QUERY = "UPDATE users SET email = :email, login = :login, name = :name, " +
             "birthday = :birthday WHERE user_id = :userId";
     private static final String DELETE_USER_QUERY = "DELETE FROM users WHERE user_id = :userId";
@@ -36,6 +56,27 @@ public class JdbcUserRepository extends BaseNamedParameterRepository<User> imple
         return findMany(FIND_ALL_USERS_QUERY, new HashMap<>());
     }
 
+    /**
+     * Возвращает страницу пользователей с ID больше afterId в порядке возрастания ID (keyset-пагинация).
+     */
+    @Override
+    public List<User> findUsersPage(long afterId, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterId", afterId);
+        params.put("limit", limit);
+        return findMany(FIND_USERS_PAGE_QUERY, params);
+    }
+
+    /**
+     * Передаёт пользователей потребителю по мере чтения из ResultSet, не накапливая их в памяти.
+     */
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        jdbc.query(FIND_ALL_USERS_QUERY, new HashMap<>(), rs -> {
+            consumer.accept(mapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
     @Override
     public Optional<User> getUserById(Long userId) {
         Map<String, Object> params = new HashMap<>();
@@ -43,6 +84,31 @@ public class JdbcUserRepository extends BaseNamedParameterRepository<User> imple
         return findOne(FIND_USER_BY_ID_QUERY, params);
     }
 
+    /**
+     * Загружает пользователей по списку ID одним запросом, сохраняя порядок переданного списка.
+     */
+    @Override
+    public List<User> getUsersByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("userIds", ids);
+        Map<Long, User> usersById = new HashMap<>();
+        findMany(FIND_USERS_BY_IDS_QUERY, params).forEach(user -> usersById.put(user.getId(), user));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public boolean existsById(Long userId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", userId);
+        return exists(EXISTS_USER_BY_ID_QUERY, params);
+    }
+
     @Override
     public User createUser(User user) {
         Map<String, Object> params = new HashMap<>();
@@ -56,6 +122,57 @@ public class JdbcUserRepository extends BaseNamedParameterRepository<User> imple
         return user;
     }
 
+    /**
+     * Пакетно сохраняет пользователей с семантикой upsert по логину: существующий пользователь с тем же логином
+     * обновляется, новый — создаётся. ID сохранённых пользователей дочитываются одним запросом по логинам.
+     *
+     * @return ID пользователей, которые существовали до загрузки и были обновлены
+     */
+    @Override
+    @Transactional
+    public Set<Long> upsertUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return new HashSet<>();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("logins", users.stream().map(User::getLogin).distinct().toList());
+        Set<Long> existingIds = new HashSet<>(findIdsByLogins(params).values());
+
+        SqlParameterSource[] batchArgs = users.stream()
+                .map(user -> new MapSqlParameterSource()
+                        .addValue("email", user.getEmail())
+                        .addValue("login", user.getLogin())
+                        .addValue("name", user.getName())
+                        .addValue("birthday", user.getBirthday()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(UPSERT_USER_QUERY, batchArgs);
+
+        Map<String, Long> idsByLogin = findIdsByLogins(params);
+        users.forEach(user -> user.setId(idsByLogin.get(user.getLogin())));
+        return existingIds;
+    }
+
+    private Map<String, Long> findIdsByLogins(Map<String, Object> params) {
+        Map<String, Long> idsByLogin = new HashMap<>();
+        jdbc.query(FIND_IDS_BY_LOGINS_QUERY, params, rs -> {
+            idsByLogin.put(rs.getString("login"), rs.getLong("user_id"));
+        });
+        return idsByLogin;
+    }
+
+    /**
+     * Возвращает подмножество переданных ID, для которых существуют пользователи. Выполняется одним запросом.
+     */
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("userIds", userIds);
+        return new HashSet<>(jdbc.queryForList(FIND_EXISTING_IDS_QUERY, params, Long.class));
+    }
+
     @Override
     public User updateUser(User newUser) {
         Map<String, Object> params = new HashMap<>();
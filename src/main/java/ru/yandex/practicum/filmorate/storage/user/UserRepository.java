@@ -3,16 +3,36 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserRepository {
     Collection<User> findAllUsers();
 
+    List<User> findUsersPage(long afterId, int limit);
+
+    void forEachUser(Consumer<User> consumer);
+
     User createUser(User user);
 
+    /**
+     * Создаёт или обновляет пользователей по логину и проставляет им ID.
+     *
+     * @return ID пользователей, которые уже существовали и были обновлены
+     */
+    Set<Long> upsertUsers(List<User> users);
+
     User updateUser(User newUser);
 
     Optional<User> getUserById(Long id);
 
+    List<User> getUsersByIds(List<Long> ids);
+
+    boolean existsById(Long id);
+
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     boolean deleteUser(Long id);
 }
@@ -29,9 +29,16 @@ CREATE TABLE IF NOT EXISTS films
     description  VARCHAR(255),
     release_date DATE,
     duration     INTEGER,
-    mpa_id       BIGINT REFERENCES mpa_ratings (mpa_id)
+    mpa_id       BIGINT REFERENCES mpa_ratings (mpa_id),
+    like_count   INTEGER DEFAULT 0 NOT NULL
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INTEGER DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_films_like_count ON films (like_count DESC, film_id);
+
+CREATE INDEX IF NOT EXISTS idx_films_mpa_id ON films (mpa_id);
+
 
 CREATE TABLE IF NOT EXISTS film_genre
 (
@@ -40,6 +47,8 @@ CREATE TABLE IF NOT EXISTS film_genre
     PRIMARY KEY (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_film_genre_genre_film ON film_genre (genre_id, film_id);
+
 CREATE TABLE IF NOT EXISTS friends
 (
     user_id   BIGINT REFERENCES users (user_id) ON DELETE CASCADE,
@@ -48,9 +57,13 @@ CREATE TABLE IF NOT EXISTS friends
     PRIMARY KEY (user_id, friend_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_friends_friend_user ON friends (friend_id, user_id);
+
 CREATE TABLE IF NOT EXISTS likes
 (
     film_id BIGINT REFERENCES films (film_id) ON DELETE CASCADE,
     user_id BIGINT REFERENCES users (user_id) ON DELETE CASCADE,
     PRIMARY KEY (film_id, user_id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_likes_user_film ON likes (user_id, film_id);
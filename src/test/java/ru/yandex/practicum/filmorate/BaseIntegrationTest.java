@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.javafaker.Faker;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -11,23 +12,60 @@ import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestExecutionListeners;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.config.EntityCacheConfig;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.GenreController;
 import ru.yandex.practicum.filmorate.controller.MpaController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FilmCatalogLoader;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmStatistics;
+import ru.yandex.practicum.filmorate.index.LikeGraph;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.mappers.MpaRatingRowMapper;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.*;
+import ru.yandex.practicum.filmorate.storage.base.QueryFanOut;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmRepository;
+import ru.yandex.practicum.filmorate.storage.film.FilmRepository;
 import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.storage.friend.FriendRepository;
 import ru.yandex.practicum.filmorate.storage.friend.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.storage.genre.GenreRepository;
 import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
 import ru.yandex.practicum.filmorate.storage.like.JdbcLikeRepository;
+import ru.yandex.practicum.filmorate.storage.like.LikeRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFriendRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryGenreRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryMpaRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryUserRepository;
 import ru.yandex.practicum.filmorate.storage.mpa.JdbcMpaRepository;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaRepository;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserRepository;
 import ru.yandex.practicum.filmorate.storage.user.JdbcUserRepository;
+import ru.yandex.practicum.filmorate.storage.user.UserRepository;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 @ActiveProfiles("test")
 @SpringBootTest
@@ -39,6 +77,12 @@ import java.util.Random;
 public abstract class BaseIntegrationTest {
     protected final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
+    /**
+     * Хранилище, на котором выполняются тесты контроллеров: по умолчанию JDBC,
+     * с -Dfilmorate.test.engine=in-memory — {@link InMemoryStore}.
+     */
+    protected static final boolean IN_MEMORY_ENGINE = "in-memory".equals(System.getProperty("filmorate.test.engine"));
+
     private static NamedParameterJdbcOperations jdbcTemplate;
 
     protected Random random = new Random();
@@ -51,9 +95,36 @@ public abstract class BaseIntegrationTest {
     protected static UserController userController;
     protected static GenreController genreController;
     protected static MpaController mpaController;
+    protected static PopularityIndex popularityIndex;
+    protected static LikeGraph likeGraph;
+    protected static FriendGraph friendGraph;
+    protected static FilmSearchIndex filmSearchIndex;
+    protected static FilmStatistics filmStatistics;
+    protected static EntityCache<Long, Film> filmCache;
+    protected static EntityCache<Long, User> userCache;
+    protected static InMemoryStore inMemoryStore;
+    protected static final QueryFanOut queryFanOut = new QueryFanOut(Executors.newVirtualThreadPerTaskExecutor(),
+            Duration.ofSeconds(5));
 
     @BeforeEach
     void cleanDatabase() {
+        if (IN_MEMORY_ENGINE) {
+            inMemoryStore.clear();
+        } else {
+            truncateTables();
+        }
+
+        // Индексы в памяти строятся заново по очищенному хранилищу
+        likeGraph.rebuild();
+        popularityIndex.rebuild();
+        friendGraph.rebuild();
+        filmSearchIndex.rebuild();
+        filmStatistics.rebuild();
+        filmCache.invalidateAll();
+        userCache.invalidateAll();
+    }
+
+    private void truncateTables() {
         // Отключаем проверку внешних ключей
         jdbcOperations.execute("SET REFERENTIAL_INTEGRITY=FALSE");
 
@@ -67,7 +138,50 @@ public abstract class BaseIntegrationTest {
         jdbcOperations.execute("SET REFERENTIAL_INTEGRITY=TRUE");
     }
 
+    /**
+     * Запускает задачу в нескольких потоках одновременно и ждёт их завершения.
+     * Задача получает номер потока; исключение из любого потока пробрасывается.
+     */
+    protected static void runConcurrently(int threads, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     protected void addUser() {
+        if (IN_MEMORY_ENGINE) {
+            String[] names = {"One", "Two", "Three", "Four", "Five", "Six", "Seven"};
+            LocalDate[] birthdays = {LocalDate.of(1990, 1, 1), LocalDate.of(1995, 5, 15), LocalDate.of(2000, 10, 20),
+                    LocalDate.of(2005, 10, 20), LocalDate.of(2010, 10, 20), LocalDate.of(2015, 10, 20),
+                    LocalDate.of(2020, 10, 20)};
+            for (int i = 0; i < names.length; i++) {
+                long id = i + 1;
+                inMemoryStore.putUser(User.builder()
+                        .id(id)
+                        .email("user" + id + "@mail.ru")
+                        .login("user" + id)
+                        .name("User " + names[i])
+                        .birthday(birthdays[i])
+                        .build());
+            }
+            return;
+        }
         jdbcOperations.update("""
                 MERGE INTO users (user_id, email, login, name, birthday)
                 KEY (user_id)
@@ -90,23 +204,60 @@ public abstract class BaseIntegrationTest {
         GenreRowMapper genreMapper = new GenreRowMapper();
         MpaRatingRowMapper mpaMapper = new MpaRatingRowMapper();
 
-        JdbcUserRepository userRepo = new JdbcUserRepository(jdbcTemplate, userMapper);
-        JdbcGenreRepository genreRepo = new JdbcGenreRepository(jdbcTemplate, genreMapper);
-        JdbcMpaRepository mpaRepo = new JdbcMpaRepository(jdbcTemplate, mpaMapper);
-        JdbcFilmRepository filmRepo = new JdbcFilmRepository(jdbcTemplate, filmMapper, genreRepo);
-        JdbcFriendRepository friendRepo = new JdbcFriendRepository(jdbcTemplate, userMapper);
-        JdbcLikeRepository likeRepo = new JdbcLikeRepository(jdbcTemplate);
+        EntityCacheConfig cacheConfig = new EntityCacheConfig();
+        filmCache = cacheConfig.filmCache(1_000, 100_000);
+        userCache = cacheConfig.userCache(1_000, 100_000);
+
+        GenreRepository genreRepo;
+        MpaRepository mpaRepo;
+        UserRepository userRepo;
+        FilmRepository filmRepo;
+        FriendRepository friendRepo;
+        LikeRepository likeRepo;
+        if (IN_MEMORY_ENGINE) {
+            inMemoryStore = new InMemoryStore("", false);
+            genreRepo = new InMemoryGenreRepository(inMemoryStore);
+            mpaRepo = new InMemoryMpaRepository();
+            userRepo = new InMemoryUserRepository(inMemoryStore);
+            filmRepo = new InMemoryFilmRepository(inMemoryStore);
+            friendRepo = new InMemoryFriendRepository(inMemoryStore);
+            likeRepo = new InMemoryLikeRepository(inMemoryStore);
+        } else {
+            genreRepo = new JdbcGenreRepository(jdbcTemplate, genreMapper);
+            mpaRepo = new JdbcMpaRepository(jdbcTemplate, mpaMapper);
+            userRepo = new CachingUserRepository(new JdbcUserRepository(jdbcTemplate, userMapper), userCache);
+            filmRepo = new CachingFilmRepository(
+                    new JdbcFilmRepository(jdbcTemplate, filmMapper, genreRepo, queryFanOut), filmCache);
+            friendRepo = new JdbcFriendRepository(jdbcTemplate, userMapper);
+            likeRepo = new JdbcLikeRepository(jdbcTemplate);
+        }
+
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(genreRepo, mpaRepo);
 
-        ValidationService validationService = new ValidationService(userRepo, filmRepo, genreRepo, mpaRepo);
-        LikeService likeService = new LikeService(likeRepo);
-        FriendService friendService = new FriendService(friendRepo, validationService);
+        ValidationService validationService = new ValidationService(userRepo, filmRepo, referenceDataCache,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        likeGraph = new LikeGraph(likeRepo);
+        FilmCatalogLoader catalogLoader = new FilmCatalogLoader(filmRepo, genreRepo, likeGraph);
+        popularityIndex = new PopularityIndex(catalogLoader, likeGraph);
+        friendGraph = new FriendGraph(friendRepo);
+        filmSearchIndex = new FilmSearchIndex(catalogLoader, popularityIndex);
+        filmStatistics = new FilmStatistics(catalogLoader, likeGraph, referenceDataCache);
+
+        LikeService likeService = new LikeService(likeRepo, popularityIndex, likeGraph, filmStatistics,
+                filmCache);
+        FriendService friendService = new FriendService(friendRepo, userRepo, validationService, friendGraph);
         UserService userService = new UserService(userRepo, validationService);
-        FilmService filmService = new FilmService(validationService, filmRepo, likeService);
-        GenreService genreService = new GenreService(genreRepo);
-        MpaRatingService mpaService = new MpaRatingService(mpaRepo);
+        FilmService filmService = new FilmService(validationService, filmRepo, likeService, popularityIndex,
+                filmSearchIndex, filmStatistics);
+        GenreService genreService = new GenreService(genreRepo, referenceDataCache);
+        MpaRatingService mpaService = new MpaRatingService(referenceDataCache);
+        RecommendationService recommendationService = new RecommendationService(likeGraph, likeRepo, filmRepo,
+                validationService);
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
-        filmController = new FilmController(filmService);
-        userController = new UserController(userService, friendService);
+        filmController = new FilmController(filmService, recommendationService, objectMapper);
+        userController = new UserController(userService, friendService, recommendationService, objectMapper);
         genreController = new GenreController(genreService);
         mpaController = new MpaController(mpaService);
     }
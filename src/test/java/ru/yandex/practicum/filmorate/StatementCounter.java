@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обёртка над {@link NamedParameterJdbcOperations} для тестов.
+ * Считает количество SQL-запросов, отправленных в БД через обёрнутый объект, и число прочитанных строк.
+ */
+public class StatementCounter {
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicInteger rows = new AtomicInteger();
+    private final NamedParameterJdbcOperations jdbc;
+
+    public StatementCounter(NamedParameterJdbcOperations target) {
+        this.jdbc = (NamedParameterJdbcOperations) Proxy.newProxyInstance(
+                NamedParameterJdbcOperations.class.getClassLoader(),
+                new Class<?>[]{NamedParameterJdbcOperations.class},
+                (proxy, method, args) -> {
+                    if (args != null && args.length > 0 && args[0] instanceof String) {
+                        statements.incrementAndGet();
+                        for (int i = 0; i < args.length; i++) {
+                            if (args[i] instanceof RowCallbackHandler handler) {
+                                args[i] = (RowCallbackHandler) rs -> {
+                                    rows.incrementAndGet();
+                                    handler.processRow(rs);
+                                };
+                            }
+                        }
+                    }
+                    try {
+                        Object result = method.invoke(target, args);
+                        if (result instanceof Collection<?> collection) {
+                            rows.addAndGet(collection.size());
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public NamedParameterJdbcOperations jdbc() {
+        return jdbc;
+    }
+
+    public int statements() {
+        return statements.get();
+    }
+
+    public int rows() {
+        return rows.get();
+    }
+
+    public void reset() {
+        statements.set(0);
+        rows.set(0);
+    }
+}
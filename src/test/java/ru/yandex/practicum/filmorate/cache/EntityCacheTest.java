@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+
+    @Test
+    @DisplayName("Повторное чтение обслуживается из кэша и учитывается в статистике")
+    void shouldServeRepeatedReadsFromCache() {
+        EntityCache<Long, String> cache = new EntityCache<>("test", 10, 100, String::length, UnaryOperator.identity());
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Optional.of("film"), cache.get(1L, id -> {
+                loads.incrementAndGet();
+                return Optional.of("film");
+            }));
+        }
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, loads.get());
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Попадания, промахи и размер кэша публикуются как метрики Micrometer")
+    void shouldPublishStatsAsMeters() {
+        EntityCache<Long, String> cache = new EntityCache<>("films", 10, 100, String::length, UnaryOperator.identity());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new EntityCacheMetrics(cache).bindTo(registry);
+
+        cache.get(1L, id -> Optional.of("film"));
+        cache.get(1L, id -> Optional.of("film"));
+        cache.get(2L, id -> Optional.empty());
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", "films", "result", "hit").functionCounter().count());
+        assertEquals(2, registry.get("cache.gets").tags("cache", "films", "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", "films").gauge().value());
+        assertEquals(4, registry.get("cache.weight").tag("cache", "films").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Вытесняет давно не использованные записи при превышении веса")
+    void shouldEvictLeastRecentlyUsedByWeight() {
+        EntityCache<Long, String> cache = new EntityCache<>("test", 10, 10, String::length, UnaryOperator.identity());
+
+        cache.get(1L, id -> Optional.of("aaaa"));
+        cache.get(2L, id -> Optional.of("bbbb"));
+        cache.get(1L, id -> Optional.empty());
+        cache.get(3L, id -> Optional.of("cccc"));
+
+        assertTrue(cache.contains(1L));
+        assertFalse(cache.contains(2L), "Запись, к которой дольше всего не обращались, должна быть вытеснена");
+        assertTrue(cache.contains(3L));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(8, cache.stats().weight());
+    }
+
+    @Test
+    @DisplayName("Не сохраняет значение, загрузка которого началась до инвалидации")
+    void shouldDropValueLoadedBeforeInvalidation() {
+        EntityCache<Long, String> cache = new EntityCache<>("test", 10, 100, String::length, UnaryOperator.identity());
+
+        cache.get(1L, id -> {
+            cache.invalidate(1L);
+            return Optional.of("stale");
+        });
+        assertFalse(cache.contains(1L));
+
+        List<String> values = cache.getAll(List.of(2L, 3L), ids -> List.of("b", "c"), value -> value.equals("b") ? 2L : 3L);
+        assertEquals(List.of("b", "c"), values);
+        assertTrue(cache.contains(2L));
+    }
+
+    @Test
+    @DisplayName("Изменение и инвалидация другого ключа не мешают сохранить загруженное значение")
+    void shouldKeepValueWhenOtherKeyChangesDuringLoad() {
+        EntityCache<Long, String> cache = new EntityCache<>("test", 10, 100, String::length, UnaryOperator.identity());
+
+        cache.get(1L, id -> {
+            cache.patch(2L, value -> {
+            });
+            cache.invalidate(3L);
+            return Optional.of("film");
+        });
+        List<String> values = cache.getAll(List.of(4L, 5L), ids -> {
+            cache.invalidate(5L);
+            return List.of("d", "e");
+        }, value -> value.equals("d") ? 4L : 5L);
+
+        assertTrue(cache.contains(1L));
+        assertEquals(List.of("d", "e"), values);
+        assertTrue(cache.contains(4L));
+        assertFalse(cache.contains(5L), "Инвалидированный во время загрузки ключ не должен попасть в кэш");
+    }
+}
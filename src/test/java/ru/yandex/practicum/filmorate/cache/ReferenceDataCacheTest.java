@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.yandex.practicum.filmorate.BaseIntegrationTest;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mappers.MpaRatingRowMapper;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.storage.mpa.JdbcMpaRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferenceDataCacheTest extends BaseIntegrationTest {
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    @Test
+    @DisplayName("Поиск жанров и рейтингов MPA после загрузки не обращается к БД")
+    void shouldServeLookupsWithoutDatabaseAfterRefresh() {
+        StatementCounter counter = new StatementCounter(jdbc);
+        ReferenceDataCache cache = new ReferenceDataCache(
+                new JdbcGenreRepository(counter.jdbc(), new GenreRowMapper()),
+                new JdbcMpaRepository(counter.jdbc(), new MpaRatingRowMapper()));
+        cache.refresh();
+        counter.reset();
+
+        for (long id = 1; id <= 6; id++) {
+            assertTrue(cache.findGenreById(id).isPresent());
+        }
+        assertEquals("PG-13", cache.findMpaById(3L).orElseThrow().getName());
+        assertTrue(cache.findGenreById(999L).isEmpty());
+        assertEquals(6, cache.findAllGenres().size());
+
+        assertEquals(0, counter.statements(), "Справочники должны читаться из памяти");
+        assertEquals(7, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ReferenceDataCacheMetrics(cache).bindTo(registry);
+        assertEquals(7, registry.get("cache.gets").tags("cache", ReferenceDataCacheMetrics.CACHE_NAME, "result", "hit")
+                .functionCounter().count());
+        assertEquals(11, registry.get("cache.size").tag("cache", ReferenceDataCacheMetrics.CACHE_NAME).gauge().value(),
+                "Шесть жанров и пять рейтингов MPA");
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdbcBulkheadTest {
+    private static final String SELECT_ONE = "SELECT 1";
+
+    @Test
+    @DisplayName("Не пропускает больше вызовов, чем разрешено, и освобождает разрешение по завершении вызова")
+    void shouldLimitConcurrentCalls() throws Exception {
+        JdbcBulkhead bulkhead = new JdbcBulkhead(1, 50);
+        NamedParameterJdbcOperations jdbc = bulkhead.wrap(template("bulkhead-limit"));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> jdbc.query(SELECT_ONE, Map.of(), rs -> {
+            reading.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        assertEquals(0, bulkhead.getAvailablePermits());
+        assertThrows(ServiceUnavailableException.class,
+                () -> jdbc.queryForObject(SELECT_ONE, Map.of(), Integer.class));
+        assertThrows(ServiceUnavailableException.class,
+                () -> jdbc.getJdbcOperations().queryForObject(SELECT_ONE, Integer.class));
+
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+        assertEquals(1, bulkhead.getAvailablePermits());
+        assertEquals(1, jdbc.queryForObject(SELECT_ONE, Map.of(), Integer.class));
+        assertEquals(1, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    @DisplayName("Вложенный вызов в том же потоке не берёт второе разрешение")
+    void shouldReenterInSameThread() {
+        JdbcBulkhead bulkhead = new JdbcBulkhead(1, 50);
+        NamedParameterJdbcOperations jdbc = bulkhead.wrap(template("bulkhead-reentrant"));
+        List<Integer> nested = new ArrayList<>();
+
+        jdbc.query(SELECT_ONE, Map.of(), rs -> {
+            nested.add(jdbc.queryForObject(SELECT_ONE, Map.of(), Integer.class));
+            nested.add(jdbc.getJdbcOperations().queryForObject(SELECT_ONE, Integer.class));
+        });
+
+        assertEquals(List.of(1, 1), nested);
+        assertEquals(1, bulkhead.getAvailablePermits());
+        assertInstanceOf(NamedParameterJdbcTemplate.class, jdbc, "Обёртка должна сохранять класс шаблона");
+    }
+
+    @Test
+    @DisplayName("Транзакция, уже держащая соединение, не ждёт разрешения, пока разрешения заняты чтениями")
+    void shouldNotWaitForPermitInsideTransaction() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bulkhead-transaction;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(5_000);
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            JdbcBulkhead bulkhead = new JdbcBulkhead(1, 200);
+            NamedParameterJdbcOperations jdbc = bulkhead.wrap(new NamedParameterJdbcTemplate(dataSource));
+            jdbc.getJdbcOperations().execute("CREATE TABLE items (id INT PRIMARY KEY)");
+            TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            CompletableFuture<Integer> read = new CompletableFuture<>();
+
+            transaction.executeWithoutResult(status -> {
+                CompletableFuture.runAsync(() -> read.complete(
+                        jdbc.queryForObject("SELECT COUNT(*) FROM items", Map.of(), Integer.class)));
+                awaitPermitsTaken(bulkhead);
+                CompletionException rejected = assertThrows(CompletionException.class, () -> CompletableFuture
+                        .supplyAsync(() -> jdbc.queryForObject(SELECT_ONE, Map.of(), Integer.class)).join());
+                assertInstanceOf(ServiceUnavailableException.class, rejected.getCause(),
+                        "Разрешение занято чтением, которое ждёт соединение транзакции");
+
+                jdbc.update("INSERT INTO items (id) VALUES (1)", Map.of());
+            });
+
+            assertEquals(1, read.get(5, TimeUnit.SECONDS));
+            assertEquals(1, bulkhead.getAvailablePermits());
+        }
+    }
+
+    private static void awaitPermitsTaken(JdbcBulkhead bulkhead) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getAvailablePermits() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, bulkhead.getAvailablePermits());
+    }
+
+    private static NamedParameterJdbcTemplate template(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QueryMetricsTest {
+
+    @Test
+    @DisplayName("Время и число строк запроса записываются с именем константы, репозитория и видом операции")
+    void shouldRecordTimerAndRowsPerQueryConstant() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NamedParameterJdbcOperations jdbc = new QueryMetrics(registry, JdbcMetricsConfig.REPOSITORIES)
+                .wrap(database("query-metrics"));
+        JdbcGenreRepository genres = new JdbcGenreRepository(jdbc, new GenreRowMapper());
+
+        genres.findAllGenres();
+        genres.findAllGenres();
+        genres.findAllFilmGenres();
+        jdbc.update("DELETE FROM film_genre", Map.of());
+
+        assertEquals(2, registry.get(QueryMetrics.TIMER_NAME)
+                .tags("repository", "JdbcGenreRepository", "query", "FIND_ALL_GENRES_QUERY",
+                        "operation", "query", "outcome", "success").timer().count());
+        DistributionSummary allGenres = registry.get(QueryMetrics.ROWS_NAME)
+                .tags("repository", "JdbcGenreRepository", "query", "FIND_ALL_GENRES_QUERY").summary();
+        assertEquals(12.0, allGenres.totalAmount());
+        assertEquals(2.0, registry.get(QueryMetrics.ROWS_NAME)
+                .tags("query", "FIND_ALL_FILM_GENRES_QUERY").summary().totalAmount(),
+                "Строки, переданные в RowCallbackHandler, тоже должны учитываться");
+        assertEquals(2.0, registry.get(QueryMetrics.ROWS_NAME)
+                .tags("query", "other", "operation", "update").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Число, прочитанное запросом, не считается числом строк, а ошибка попадает в outcome=error")
+    void shouldTagOperationAndOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NamedParameterJdbcOperations jdbc = new QueryMetrics(registry, JdbcMetricsConfig.REPOSITORIES)
+                .wrap(database("query-metrics-operations"));
+
+        assertEquals(6, jdbc.queryForObject("SELECT COUNT(*) FROM genres", Map.of(), Integer.class));
+        assertEquals(6, jdbc.getJdbcOperations().queryForObject("SELECT COUNT(*) FROM genres", Integer.class));
+        assertThrows(BadSqlGrammarException.class, () -> jdbc.update("DELETE FROM missing_table", Map.of()));
+
+        assertEquals(2.0, registry.get(QueryMetrics.ROWS_NAME)
+                .tags("query", "other", "operation", "query").summary().totalAmount(),
+                "Результат COUNT(*) — одна прочитанная строка, а не шесть");
+        assertEquals(1, registry.get(QueryMetrics.TIMER_NAME)
+                .tags("query", "other", "operation", "update", "outcome", "error").timer().count());
+        assertEquals(0, registry.get(QueryMetrics.TIMER_NAME)
+                .tags("query", "other", "operation", "update", "outcome", "success").timer().count());
+        assertEquals(0, registry.get(QueryMetrics.ROWS_NAME)
+                .tags("query", "other", "operation", "update").summary().count());
+    }
+
+    private static NamedParameterJdbcOperations database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema-h2.sql"),
+                new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        NamedParameterJdbcOperations jdbc = new NamedParameterJdbcTemplate(dataSource);
+        jdbc.getJdbcOperations().execute("""
+                INSERT INTO films (film_id, name, release_date, duration, mpa_id) VALUES
+                    (1, 'Первый', DATE '2000-01-01', 90, 1);
+                INSERT INTO film_genre (film_id, genre_id) VALUES (1, 1), (1, 2);
+                """);
+        return jdbc;
+    }
+}
@@ -9,24 +9,43 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.yandex.practicum.filmorate.BaseIntegrationTest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
+import ru.yandex.practicum.filmorate.model.BatchItemError;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmCatalogStats;
+import ru.yandex.practicum.filmorate.model.FilmGroupStats;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.LikeService;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class FilmControllerTest extends BaseIntegrationTest {
+    @Autowired
+    private LikeService managedLikeService;
+    @Autowired
+    private PopularityIndex managedPopularityIndex;
 
     @Test
     @DisplayName("Добавление фильма с валидными данными")
@@ -180,7 +199,7 @@ public class FilmControllerTest extends BaseIntegrationTest {
                 .build();
         filmController.createFilm(film2);
 
-        Collection<Film> popularFilms = filmController.getPopulateFilms(10);
+        Collection<Film> popularFilms = filmController.getPopulateFilms(10, null, null, null);
         assertEquals(2, popularFilms.size());
     }
 
@@ -223,7 +242,7 @@ public class FilmControllerTest extends BaseIntegrationTest {
             }
         }
 
-        Collection<Film> popularFilms = filmController.getPopulateFilms(3);
+        Collection<Film> popularFilms = filmController.getPopulateFilms(3, null, null, null);
         assertEquals(3, popularFilms.size());
     }
 
@@ -256,7 +275,7 @@ public class FilmControllerTest extends BaseIntegrationTest {
             }
         }
 
-        ArrayList<Film> popularFilms = (ArrayList) filmController.getPopulateFilms(5);
+        ArrayList<Film> popularFilms = (ArrayList) filmController.getPopulateFilms(5, null, null, null);
 
         assertEquals(5, popularFilms.size());
 
@@ -268,4 +287,375 @@ public class FilmControllerTest extends BaseIntegrationTest {
             );
         }
     }
+
+    @Test
+    @DisplayName("Лайки поддерживают счётчик like_count у фильма")
+    void shouldMaintainLikeCountOnLikeAndUnlike() {
+        assumeFalse(IN_MEMORY_ENGINE, "Счётчик like_count есть только в JDBC-хранилище");
+        addUser();
+        Film createdFilm = filmController.createFilm(Film.builder()
+                .name("Test Film")
+                .description("Test shouldMaintainLikeCountOnLikeAndUnlike")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new MpaRating(1L, "G"))
+                .genres(Set.of(new Genre(1L, "Комедия")))
+                .build());
+
+        filmController.addLike(createdFilm.getId(), 1L);
+        filmController.addLike(createdFilm.getId(), 2L);
+        filmController.removeLike(createdFilm.getId(), 1L);
+        filmController.removeLike(createdFilm.getId(), 3L);
+
+        Integer likeCount = jdbcOperations.queryForObject(
+                "SELECT like_count FROM films WHERE film_id = ?", Integer.class, createdFilm.getId());
+        assertEquals(1, likeCount, "Счётчик должен учитывать только существующие лайки");
+    }
+
+    @Test
+    @DisplayName("Лайк фильму не отменяет кэширование другого фильма, загружаемого в это же время")
+    void shouldKeepConcurrentLoadOfOtherFilmWhenLikeIsAdded() {
+        addUser();
+        Film liked = filmController.createFilm(Film.builder()
+                .name("Liked Film")
+                .description("Test shouldKeepConcurrentLoadOfOtherFilmWhenLikeIsAdded")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new MpaRating(1L, "G"))
+                .genres(Set.of(new Genre(1L, "Комедия")))
+                .build());
+        Film other = filmController.createFilm(liked.toBuilder().id(null).name("Other Film").build());
+        filmCache.invalidateAll();
+
+        filmCache.get(other.getId(), id -> {
+            filmController.addLike(liked.getId(), 1L);
+            return Optional.of(other);
+        });
+
+        assertTrue(filmCache.contains(other.getId()), "Лайк должен сбрасывать загрузку только своего фильма");
+        assertEquals(Set.of(1L), filmController.getFilmById(liked.getId()).getLikes());
+    }
+
+    @Test
+    @DisplayName("Параллельные повторные лайки не дают ошибок, дублей и расхождения счётчиков")
+    void shouldKeepLikeInvariantsUnderConcurrentDuplicateLikes() throws Exception {
+        addUser();
+        Film createdFilm = filmController.createFilm(Film.builder()
+                .name("Test Film")
+                .description("Test shouldKeepLikeInvariantsUnderConcurrentDuplicateLikes")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new MpaRating(1L, "G"))
+                .genres(Set.of(new Genre(1L, "Комедия")))
+                .build());
+        // Лайки ставятся через бины Spring: только у них работает @Transactional репозитория лайков
+        BiConsumer<Long, Long> addLike = IN_MEMORY_ENGINE ? filmController::addLike : managedLikeService::addLike;
+        PopularityIndex index = IN_MEMORY_ENGINE ? popularityIndex : managedPopularityIndex;
+        index.rebuild();
+
+        runConcurrently(8, thread -> {
+            for (int round = 0; round < 50; round++) {
+                addLike.accept(createdFilm.getId(), (long) (round % 5 + 1));
+            }
+        });
+
+        assertEquals(5, index.score(createdFilm.getId()), "Индекс должен учесть каждый лайк один раз");
+        if (IN_MEMORY_ENGINE) {
+            assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), filmController.getFilmById(createdFilm.getId()).getLikes());
+            assertEquals(5, filmController.getStats().getTotal().getLikes());
+        } else {
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), jdbcOperations.queryForList(
+                    "SELECT user_id FROM likes WHERE film_id = ? ORDER BY user_id", Long.class, createdFilm.getId()));
+            assertEquals(5, jdbcOperations.queryForObject(
+                    "SELECT like_count FROM films WHERE film_id = ?", Integer.class, createdFilm.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("GET /popular возвращает тот же результат из БД, если индекс популярности устарел")
+    void shouldFallBackToDatabaseWhenPopularityIndexIsStale() {
+        addUser();
+        for (int i = 1; i <= 3; i++) {
+            Film createdFilm = filmController.createFilm(Film.builder()
+                    .name("Test Film" + i)
+                    .description("Test shouldFallBackToDatabaseWhenPopularityIndexIsStale")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(120)
+                    .mpa(new MpaRating(1L, "G"))
+                    .genres(Set.of(new Genre(1L, "Комедия")))
+                    .build());
+            for (long userId = 1; userId <= i; userId++) {
+                filmController.addLike(createdFilm.getId(), userId);
+            }
+        }
+
+        List<Long> fromIndex = filmController.getPopulateFilms(3, null, null, null).stream()
+                .map(Film::getId)
+                .toList();
+        popularityIndex.markStale();
+        List<Long> fromDatabase = filmController.getPopulateFilms(3, null, null, null).stream()
+                .map(Film::getId)
+                .toList();
+
+        assertEquals(List.of(3L, 2L, 1L), fromIndex);
+        assertEquals(fromIndex, fromDatabase);
+    }
+
+    @Test
+    @DisplayName("GET /popular отбирает фильмы по жанру, году и рейтингу одинаково из индекса и из БД")
+    void shouldFilterPopularFilmsByGenreYearAndMpa() {
+        addUser();
+        Film comedy2000 = createLikedFilm(1L, 2000, 1L, 1);
+        Film drama2000 = createLikedFilm(2L, 2000, 2L, 3);
+        Film comedy2010 = createLikedFilm(1L, 2010, 1L, 2);
+
+        assertEquals(List.of(comedy2010.getId(), comedy2000.getId()), popularFilmIds(1L, null, null));
+        assertEquals(List.of(drama2000.getId(), comedy2000.getId()), popularFilmIds(null, 2000, null));
+        assertEquals(List.of(comedy2000.getId()), popularFilmIds(1L, 2000, 1L));
+        assertTrue(popularFilmIds(3L, null, null).isEmpty());
+
+        comedy2010.setGenres(Set.of(new Genre(2L, "Драма")));
+        filmController.updateFilm(comedy2010);
+        assertEquals(List.of(drama2000.getId(), comedy2010.getId()), popularFilmIds(2L, null, null));
+
+        List<Long> fromIndex = popularFilmIds(1L, 2000, null);
+        popularityIndex.markStale();
+        assertEquals(fromIndex, popularFilmIds(1L, 2000, null));
+        assertEquals(List.of(drama2000.getId(), comedy2010.getId()), popularFilmIds(2L, null, null));
+    }
+
+    @Test
+    @DisplayName("GET /films/stats учитывает создание, изменение фильма и лайки без пересчёта")
+    void shouldMaintainCatalogStatsIncrementally() {
+        addUser();
+        createLikedFilm(1L, 2000, 1L, 2);
+        Film drama = createLikedFilm(2L, 2010, 1L, 1);
+        drama.setGenres(Set.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")));
+        drama.setDuration(60);
+        filmController.updateFilm(drama);
+        filmController.removeLike(drama.getId(), 1L);
+
+        FilmCatalogStats stats = filmController.getStats();
+
+        assertEquals(2, stats.getTotal().getFilms());
+        assertEquals(2, stats.getTotal().getLikes());
+        assertEquals(90.0, stats.getTotal().getAverageDuration());
+        assertEquals(Map.of(2000, 1L, 2010, 1L), stats.getTotal().getReleaseYears());
+        FilmGroupStats comedy = stats.getByGenre().get(0);
+        assertEquals("Комедия", comedy.getName());
+        assertEquals(2, comedy.getFilms());
+        assertEquals(2, comedy.getLikes());
+        assertEquals(0, stats.getByGenre().get(2).getFilms());
+        assertEquals(2, stats.getByMpa().get(0).getFilms());
+    }
+
+    private Film createLikedFilm(long genreId, int year, long mpaId, int likes) {
+        Film film = filmController.createFilm(Film.builder()
+                .name("Film " + genreId + " " + year)
+                .description("Test shouldFilterPopularFilmsByGenreYearAndMpa")
+                .releaseDate(LocalDate.of(year, 6, 1))
+                .duration(120)
+                .mpa(new MpaRating(mpaId, null))
+                .genres(Set.of(new Genre(genreId, null)))
+                .build());
+        for (long userId = 1; userId <= likes; userId++) {
+            filmController.addLike(film.getId(), userId);
+        }
+        return film;
+    }
+
+    private List<Long> popularFilmIds(Long genreId, Integer year, Long mpaId) {
+        return filmController.getPopulateFilms(10, genreId, year, mpaId).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("GET /films/export выгружает все фильмы в формате NDJSON")
+    void shouldExportAllFilmsAsNdjson() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(Film.builder()
+                    .name("Test Film" + i)
+                    .description("Test shouldExportAllFilmsAsNdjson")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(120)
+                    .mpa(new MpaRating(1L, "G"))
+                    .genres(Set.of(new Genre(1L, "Комедия")))
+                    .build());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.exportFilms().writeTo(out);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.getFirst().contains("\"name\":\"Test Film1\""));
+    }
+
+    @Test
+    @DisplayName("POST /films/batch сохраняет валидные фильмы и сообщает об ошибках по элементам")
+    void shouldCreateFilmsInBatchAndReportItemErrors() {
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            batch.add(Film.builder()
+                    .name(i == 1 ? "" : "Batch Film" + i)
+                    .description("Test shouldCreateFilmsInBatchAndReportItemErrors")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(120)
+                    .mpa(new MpaRating(1L, "G"))
+                    .genres(Set.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")))
+                    .build());
+        }
+
+        BatchImportResult result = filmController.createFilms(batch);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().getFirst().getIndex());
+        for (Film film : List.of(batch.get(0), batch.get(2))) {
+            Film saved = filmController.getFilmById(film.getId());
+            assertEquals(2, saved.getGenres().size(), "Жанры фильма должны быть сохранены");
+        }
+    }
+
+    @Test
+    @DisplayName("POST /films/batch в NDJSON пропускает непрочитанный элемент и останавливается на сломанном JSON")
+    void shouldReportUnreadableNdjsonItemsAndKeepPartialResult() throws IOException {
+        String valid = "{\"name\":\"%s\",\"description\":\"NDJSON\",\"releaseDate\":\"2000-01-01\","
+                + "\"duration\":120,\"mpa\":{\"id\":1}}";
+        String body = String.join("\n",
+                valid.formatted("Первый"),
+                valid.formatted("Неверная длительность").replace("120", "\"долго\""),
+                valid.formatted("Второй"),
+                "{\"name\": \"Оборванный",
+                valid.formatted("Не прочитан"));
+
+        BatchImportResult result = filmController.createFilmsFromNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1, 3, 4), result.getErrors().stream().map(BatchItemError::getIndex).toList(),
+                "Оборванная строка ломает разбор и следующего элемента");
+        assertTrue(result.isAborted(), "Загрузка должна остановиться на сломанном JSON");
+        assertEquals(5, result.getReceived());
+        assertEquals(List.of("Первый", "Второй"), filmController.findAllFilms(null, null).stream()
+                .map(Film::getName)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("GET /films/{id}/similar ранжирует фильмы по числу общих лайков")
+    void shouldReturnSimilarFilmsByCoLikes() {
+        List<Film> films = createFilmsWithCoLikes();
+
+        List<Long> similarIds = filmController.getSimilarFilms(films.get(0).getId(), 10).stream()
+                .map(Film::getId)
+                .toList();
+
+        assertEquals(List.of(films.get(1).getId(), films.get(2).getId()), similarIds);
+    }
+
+    @Test
+    @DisplayName("GET /users/{id}/recommendations не предлагает уже лайкнутые фильмы")
+    void shouldRecommendFilmsNotLikedByUser() {
+        List<Film> films = createFilmsWithCoLikes();
+
+        List<Long> recommendedIds = userController.getRecommendations(3L, 10).stream()
+                .map(Film::getId)
+                .toList();
+
+        assertEquals(List.of(films.get(1).getId()), recommendedIds);
+    }
+
+    @Test
+    @DisplayName("Пока граф лайков не построен, похожие фильмы и рекомендации ищутся в БД")
+    void shouldFindSimilarFilmsAndRecommendationsInDatabaseWhileGraphIsStale() {
+        List<Film> films = createFilmsWithCoLikes();
+        Long filmId = films.get(0).getId();
+        List<Long> similarFromGraph = filmIds(filmController.getSimilarFilms(filmId, 10));
+        List<Long> recommendedFromGraph = filmIds(userController.getRecommendations(3L, 10));
+
+        likeGraph.markStale();
+
+        assertEquals(List.of(films.get(1).getId(), films.get(2).getId()), similarFromGraph);
+        assertEquals(similarFromGraph, filmIds(filmController.getSimilarFilms(filmId, 10)));
+        assertEquals(List.of(films.get(1).getId()), recommendedFromGraph);
+        assertEquals(recommendedFromGraph, filmIds(userController.getRecommendations(3L, 10)));
+    }
+
+    private static List<Long> filmIds(Collection<Film> films) {
+        return films.stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("GET /films/search находит фильмы по префиксам слов и поднимает выше популярные")
+    void shouldSearchFilmsByPrefixAndRankByLikes() {
+        addUser();
+        Film matrix = filmController.createFilm(searchFilm("Матрица", "Хакер узнаёт правду о мире"));
+        Film reloaded = filmController.createFilm(searchFilm("Матрица: Перезагрузка", "Продолжение фильма"));
+        filmController.createFilm(searchFilm("Terminator", "Ёлки и машины"));
+        filmController.addLike(reloaded.getId(), 1L);
+        filmController.addLike(reloaded.getId(), 2L);
+
+        List<Long> byTitle = filmController.searchFilms("матр", List.of("title"), 10).stream()
+                .map(Film::getId)
+                .toList();
+        List<Long> byDescription = filmController.searchFilms("узнаеТ МИР", List.of("description"), 10).stream()
+                .map(Film::getId)
+                .toList();
+
+        assertEquals(List.of(reloaded.getId(), matrix.getId()), byTitle);
+        assertEquals(List.of(matrix.getId()), byDescription);
+        assertTrue(filmController.searchFilms("матрица", List.of("description"), 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("GET /films/search учитывает новые название и описание после обновления фильма")
+    void shouldReindexFilmOnUpdate() {
+        Film film = filmController.createFilm(searchFilm("Old title", "Old description"));
+        film.setName("Brand new title");
+        film.setDescription("Fresh description");
+        filmController.updateFilm(film);
+
+        assertTrue(filmController.searchFilms("old title", List.of("title", "description"), 10).isEmpty());
+        assertEquals(film.getId(), filmController.searchFilms("bra", List.of("title"), 10).iterator().next().getId());
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("new", List.of("genre"), 10));
+    }
+
+    private static Film searchFilm(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(120)
+                .mpa(new MpaRating(1L, "G"))
+                .genres(Set.of(new Genre(1L, "Комедия")))
+                .build();
+    }
+
+    /**
+     * Создаёт фильмы A, B, C, D с лайками: user1 — A, B; user2 — A, B, C; user3 — A, C; user4 — D; user5 — A, B.
+     */
+    private List<Film> createFilmsWithCoLikes() {
+        addUser();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(filmController.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Test createFilmsWithCoLikes")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(120)
+                    .mpa(new MpaRating(1L, "G"))
+                    .genres(Set.of(new Genre(1L, "Комедия")))
+                    .build()));
+        }
+        long[][] likes = {{1, 0}, {1, 1}, {2, 0}, {2, 1}, {2, 2}, {3, 0}, {3, 2}, {4, 3}, {5, 0}, {5, 1}};
+        for (long[] like : likes) {
+            filmController.addLike(films.get((int) like[1]).getId(), like[0]);
+        }
+        return films;
+    }
 }
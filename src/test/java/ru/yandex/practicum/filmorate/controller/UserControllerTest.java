@@ -3,18 +3,29 @@ package ru.yandex.practicum.filmorate.controller;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import ru.yandex.practicum.filmorate.BaseIntegrationTest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchImportResult;
+import ru.yandex.practicum.filmorate.model.BatchItemError;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendService;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserControllerTest extends BaseIntegrationTest {
+    @Autowired
+    private FriendService managedFriendService;
     private User testUser;
     private User friendUser;
 
@@ -86,7 +97,7 @@ public class UserControllerTest extends BaseIntegrationTest {
     void shouldReturnAllAddedUsers() {
         userController.createUser(testUser);
 
-        Collection<User> users = userController.findAllUsers();
+        Collection<User> users = userController.findAllUsers(null, null);
         assertEquals(1, users.size());
     }
 
@@ -102,6 +113,42 @@ public class UserControllerTest extends BaseIntegrationTest {
         assertEquals(friendUser.getId(), friends.get(0).getId());
     }
 
+    @Test
+    @DisplayName("Параллельные встречные и повторные запросы дружбы дают ровно две подтверждённые связи")
+    void shouldKeepFriendshipInvariantsUnderConcurrentRequests() throws Exception {
+        userController.createUser(testUser);
+        userController.createUser(friendUser);
+        // Запросы идут через бин Spring, как в приложении, а не через собранный в тесте сервис
+        BiConsumer<Long, Long> addFriend = IN_MEMORY_ENGINE
+                ? userController::addFriend
+                : managedFriendService::addFriend;
+
+        runConcurrently(8, thread -> {
+            for (int round = 0; round < 50; round++) {
+                if (thread % 2 == 0) {
+                    addFriend.accept(testUser.getId(), friendUser.getId());
+                } else {
+                    addFriend.accept(friendUser.getId(), testUser.getId());
+                }
+            }
+        });
+
+        if (IN_MEMORY_ENGINE) {
+            assertEquals(List.of(friendUser.getId()),
+                    userController.getFriends(testUser.getId()).stream().map(User::getId).toList());
+            assertEquals(List.of(testUser.getId()),
+                    userController.getFriends(friendUser.getId()).stream().map(User::getId).toList());
+        } else {
+            List<String> rows = jdbcOperations.query(
+                    "SELECT user_id, friend_id, confirmed FROM friends ORDER BY user_id, friend_id",
+                    (rs, rowNum) -> rs.getLong("user_id") + "->" + rs.getLong("friend_id")
+                            + (rs.getBoolean("confirmed") ? " подтверждена" : " не подтверждена"));
+            assertEquals(List.of(testUser.getId() + "->" + friendUser.getId() + " подтверждена",
+                            friendUser.getId() + "->" + testUser.getId() + " подтверждена"), rows,
+                    "Должно быть ровно по одной подтверждённой строке на каждое направление");
+        }
+    }
+
     @Test
     @DisplayName("Удаляет пользователя из друзей")
     void shouldRemoveFriend() {
@@ -144,6 +191,39 @@ public class UserControllerTest extends BaseIntegrationTest {
         assertEquals(commonFriend.getId(), commonFriends.getFirst().getId());
     }
 
+    @Test
+    @DisplayName("Пока граф дружбы не построен, общие друзья ищутся в БД")
+    void shouldFindCommonFriendsInDatabaseWhileGraphIsStale() {
+        addUser();
+        long[][] friendships = {{1, 3}, {1, 4}, {2, 3}, {2, 4}, {2, 5}};
+        for (long[] friendship : friendships) {
+            userController.addFriend(friendship[0], friendship[1]);
+        }
+        List<Long> fromGraph = commonFriendIds(1L, 2L);
+
+        friendGraph.markStale();
+        List<Long> fromDatabase = commonFriendIds(1L, 2L);
+
+        assertEquals(List.of(3L, 4L), fromGraph);
+        assertEquals(fromGraph, fromDatabase);
+    }
+
+    @Test
+    @DisplayName("Рекомендует друзей друзей по числу общих друзей")
+    void shouldSuggestFriendsOfFriendsByMutualCount() {
+        addUser();
+        long[][] friendships = {{1, 2}, {1, 3}, {2, 4}, {2, 5}, {3, 4}, {3, 1}};
+        for (long[] friendship : friendships) {
+            userController.addFriend(friendship[0], friendship[1]);
+        }
+
+        List<Long> suggestions = userController.getFriendSuggestions(1L, 10).stream()
+                .map(User::getId)
+                .toList();
+
+        assertEquals(List.of(4L, 5L), suggestions);
+    }
+
     @Test
     @DisplayName("Отклоняет добавление несуществующего друга")
     void shouldThrowWhenAddingNonExistingFriend() {
@@ -159,4 +239,75 @@ public class UserControllerTest extends BaseIntegrationTest {
         assertThrows(NotFoundException.class,
                 () -> userController.addFriend(999L, friendUser.getId()));
     }
+
+    @Test
+    @DisplayName("Возвращает пользователей страницами по курсору after")
+    void shouldReturnUsersPageAfterCursor() {
+        addUser();
+
+        List<User> firstPage = (List<User>) userController.findAllUsers(null, 3);
+        List<User> secondPage = (List<User>) userController.findAllUsers(firstPage.getLast().getId(), 3);
+        List<User> lastPage = (List<User>) userController.findAllUsers(6L, 3);
+
+        assertEquals(List.of(1L, 2L, 3L), firstPage.stream().map(User::getId).toList());
+        assertEquals(List.of(4L, 5L, 6L), secondPage.stream().map(User::getId).toList());
+        assertEquals(List.of(7L), lastPage.stream().map(User::getId).toList());
+        assertThrows(ValidationException.class, () -> userController.findAllUsers(null, 0));
+    }
+
+    @Test
+    @DisplayName("POST /users/batch в NDJSON сообщает об ошибке чтения и сохраняет прочитанных пользователей")
+    void shouldKeepUsersReadBeforeBrokenNdjson() throws IOException {
+        String body = "{\"email\":\"first@mail.ru\",\"login\":\"first\",\"birthday\":\"2000-01-01\"}\n"
+                + "{\"email\":\"second@mail.ru\",\"login\":";
+
+        BatchImportResult result = userController.createUsersFromNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, result.getCreated());
+        assertTrue(result.isAborted());
+        assertEquals(List.of(1), result.getErrors().stream().map(BatchItemError::getIndex).toList());
+        assertEquals(List.of("first"), userController.findAllUsers(null, null).stream()
+                .map(User::getLogin)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Пакетно загружает пользователей и связи дружбы")
+    void shouldImportUsersAndFriendshipsInBatch() {
+        User invalidUser = User.builder().email("invalid").login("invalidLogin").build();
+        BatchImportResult users = userController.createUsers(List.of(testUser, invalidUser, friendUser));
+
+        assertEquals(2, users.getCreated());
+        assertEquals(0, users.getUpdated());
+        assertEquals(1, users.getErrors().getFirst().getIndex());
+        Long userId = testUser.getId();
+        Long friendId = friendUser.getId();
+
+        User renamed = User.builder().email("test@mail.ru").login("testLogin").name("Renamed").build();
+        User newUser = User.builder().email("new@mail.ru").login("newLogin").build();
+        BatchImportResult upsert = userController.createUsers(List.of(renamed, newUser));
+        assertEquals(1, upsert.getCreated());
+        assertEquals(1, upsert.getUpdated());
+        assertEquals(userId, renamed.getId(), "Повторная загрузка по тому же логину должна обновлять пользователя");
+        assertEquals("Renamed", userController.getUserById(userId).getName());
+        assertEquals(3, userController.findAllUsers(null, null).size());
+
+        BatchImportResult friendships = userController.addFriends(List.of(
+                new Friendship(userId, friendId),
+                new Friendship(userId, friendId),
+                new Friendship(userId, 999L),
+                new Friendship(userId, userId)));
+
+        assertEquals(2, friendships.getCreated());
+        assertEquals(List.of(2, 3), friendships.getErrors().stream().map(BatchItemError::getIndex).toList());
+        assertEquals(List.of(friendId), userController.getFriends(userId).stream().map(User::getId).toList());
+    }
+
+    private List<Long> commonFriendIds(Long userId, Long otherId) {
+        return userController.getCommonFriends(userId, otherId).stream()
+                .map(User::getId)
+                .sorted()
+                .toList();
+    }
 }
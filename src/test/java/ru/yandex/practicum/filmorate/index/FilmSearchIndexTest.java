@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FilmSearchIndexTest {
+    private final FilmSearchIndex index = new FilmSearchIndex(null, new PopularityIndex(null, null));
+
+    @Test
+    @DisplayName("Термин без фильмов удаляется из словаря")
+    void shouldRemoveTermWithoutFilms() {
+        index.index(film(1L, "Матрица", "Хакер"));
+        int terms = index.termCount();
+
+        index.index(film(1L, "Матрица", "Избранный"));
+
+        assertEquals(terms, index.termCount(), "Слово «хакер» не должно оставаться в словаре");
+        assertEquals(List.of(), index.search("хакер", Set.of(FilmSearchIndex.Field.DESCRIPTION), 10));
+        assertEquals(List.of(1L), index.search("избран", Set.of(FilmSearchIndex.Field.DESCRIPTION), 10));
+    }
+
+    @Test
+    @DisplayName("Из слишком широкого префикса разворачиваются самые частые термины")
+    void shouldExpandMostFrequentTermsOfWidePrefix() {
+        int rareTerms = FilmSearchIndex.MAX_PREFIX_EXPANSIONS + 10;
+        for (long id = 1; id <= rareTerms; id++) {
+            index.index(film(id, String.format("а%03d", id), ""));
+        }
+        List<Long> frequentIds = List.of(rareTerms + 1L, rareTerms + 2L, rareTerms + 3L);
+        frequentIds.forEach(id -> index.index(film(id, "ая", "")));
+
+        List<Long> found = index.search("а", Set.of(FilmSearchIndex.Field.TITLE), 1000);
+
+        assertTrue(found.containsAll(frequentIds), "Частый термин «ая» идёт после редких, но не должен отбрасываться");
+        assertEquals(FilmSearchIndex.MAX_PREFIX_EXPANSIONS - 1 + frequentIds.size(), found.size());
+    }
+
+    private static Film film(long id, String name, String description) {
+        return Film.builder().id(id).name(name).description(description).build();
+    }
+}
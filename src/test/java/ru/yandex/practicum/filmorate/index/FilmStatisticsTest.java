@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGroupStats;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryGenreRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryMpaRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmStatisticsTest {
+    private InMemoryFilmRepository films;
+    private LikeGraph likeGraph;
+    private FilmStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryStore store = new InMemoryStore("", false);
+        InMemoryGenreRepository genres = new InMemoryGenreRepository(store);
+        films = new InMemoryFilmRepository(store);
+        likeGraph = new LikeGraph(new InMemoryLikeRepository(store));
+        likeGraph.rebuild();
+        statistics = new FilmStatistics(new FilmCatalogLoader(films, genres, likeGraph), likeGraph,
+                new ReferenceDataCache(genres, new InMemoryMpaRepository()));
+    }
+
+    @Test
+    @DisplayName("Перестройка исправляет расхождение с БД и учитывает фильмы, не прошедшие через register")
+    void shouldRepairDriftOnRebuild() {
+        Film film = films.createFilm(film());
+        statistics.rebuild();
+        likeGraph.addLike(film.getId(), 1L);
+        statistics.refreshLikes(film.getId());
+        statistics.refreshLikes(film.getId());
+
+        assertEquals(1, statistics.stats().getTotal().getLikes(), "Лайк, не записанный в БД, учтён один раз");
+
+        Film unregistered = films.createFilm(film());
+        likeGraph.rebuild();
+        statistics.rebuild();
+
+        FilmGroupStats total = statistics.stats().getTotal();
+        assertEquals(0, total.getLikes());
+        assertEquals(2, total.getFilms(), "Фильм " + unregistered.getId() + " должен попасть в статистику");
+        assertEquals(2, statistics.stats().getByGenre().getFirst().getFilms());
+    }
+
+    private static Film film() {
+        return Film.builder()
+                .name("Фильм")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new MpaRating(1L, null))
+                .genres(Set.of(new Genre(1L, null)))
+                .build();
+    }
+}
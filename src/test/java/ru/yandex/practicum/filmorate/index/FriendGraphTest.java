@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFriendRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FriendGraphTest {
+
+    @Test
+    @DisplayName("Дружба, добавленная или удалённая во время перестройки, не теряется")
+    void shouldKeepFriendshipsChangedDuringRebuild() {
+        AtomicReference<Runnable> duringLoad = new AtomicReference<>(() -> { });
+        InMemoryFriendRepository friends = new InMemoryFriendRepository(new InMemoryStore("", false)) {
+            @Override
+            public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+                super.forEachFriendship(consumer);
+                duringLoad.get().run();
+            }
+        };
+        friends.addFriend(1L, 3L);
+        friends.addFriend(2L, 3L);
+        FriendGraph graph = new FriendGraph(friends);
+        graph.rebuild();
+
+        duringLoad.set(() -> {
+            graph.addFriend(1L, 4L);
+            graph.addFriend(2L, 4L);
+            graph.removeFriend(2L, 3L);
+        });
+        graph.rebuild();
+
+        assertEquals(Optional.of(List.of(4L)), graph.commonFriendIds(1L, 2L));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LikeGraphTest {
+
+    @Test
+    @DisplayName("Лайк, поставленный или снятый во время перестройки, не теряется")
+    void shouldKeepLikesChangedDuringRebuild() {
+        AtomicReference<Runnable> duringLoad = new AtomicReference<>(() -> { });
+        InMemoryLikeRepository likes = new InMemoryLikeRepository(new InMemoryStore("", false)) {
+            @Override
+            public void forEachLike(BiConsumer<Long, Long> consumer) {
+                super.forEachLike(consumer);
+                duringLoad.get().run();
+            }
+        };
+        likes.addLike(1L, 1L);
+        likes.addLike(2L, 1L);
+        LikeGraph graph = new LikeGraph(likes);
+        assertTrue(graph.isStale(), "До первой перестройки граф не используется");
+        graph.rebuild();
+
+        duringLoad.set(() -> {
+            graph.addLike(3L, 1L);
+            graph.addLike(1L, 2L);
+            graph.removeLike(2L, 1L);
+        });
+        graph.rebuild();
+
+        assertEquals(2, graph.likeCount(1L));
+        assertEquals(0, graph.likeCount(2L));
+        assertEquals(Optional.of(List.of(3L)), graph.similarFilmIds(1L, 10));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.PopularFilmsFilter;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFilmRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryGenreRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PopularityIndexTest {
+    private InMemoryFilmRepository films;
+    private InMemoryGenreRepository genres;
+    private LikeGraph likeGraph;
+    private PopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryStore store = new InMemoryStore("", false);
+        films = new InMemoryFilmRepository(store);
+        genres = new InMemoryGenreRepository(store);
+        likeGraph = new LikeGraph(new InMemoryLikeRepository(store));
+        likeGraph.rebuild();
+        index = new PopularityIndex(new FilmCatalogLoader(films, genres, likeGraph), likeGraph);
+        index.rebuild();
+    }
+
+    @Test
+    @DisplayName("Отбор по нескольким признакам учитывает все условия и перенос фильма между признаками")
+    void shouldFilterByAllFacetsAfterFilmMovesBetweenFacets() {
+        for (long id = 1; id <= 5; id++) {
+            index.register(film(id, 2000, 1L));
+            for (long userId = 1; userId <= id; userId++) {
+                likeGraph.addLike(id, userId);
+                index.refresh(id);
+            }
+        }
+        index.register(film(6L, 1999, 1L));
+
+        assertEquals(Optional.of(List.of(6L)), index.topFilmIds(10, new PopularFilmsFilter(1L, 1999, null)));
+        assertEquals(Optional.of(List.of(5L, 4L)), index.topFilmIds(2, new PopularFilmsFilter(1L, 2000, 1L)));
+
+        index.register(film(5L, 1999, 2L));
+
+        assertEquals(Optional.of(List.of(5L)), index.topFilmIds(10, new PopularFilmsFilter(2L, 1999, null)));
+        assertEquals(Optional.of(List.of(4L, 3L, 2L, 1L)),
+                index.topFilmIds(10, new PopularFilmsFilter(1L, 2000, null)));
+        assertEquals(Optional.of(List.of()), index.topFilmIds(10, new PopularFilmsFilter(3L, 2000, null)));
+    }
+
+    @Test
+    @DisplayName("Лайк, прочитанный перестройкой и применённый к индексу во время неё, учитывается один раз")
+    void shouldNotCountLikeTwiceWhenAppliedDuringRebuild() {
+        long filmId = films.createFilm(film(0, 2000, 1L)).getId();
+        AtomicReference<Runnable> duringLoad = new AtomicReference<>(() -> { });
+        PopularityIndex rebuilding = new PopularityIndex(new FilmCatalogLoader(films, genres, likeGraph) {
+            @Override
+            public void forEachFilmWithLikes(ObjLongConsumer<Film> action) {
+                super.forEachFilmWithLikes(action);
+                duringLoad.get().run();
+            }
+        }, likeGraph);
+        rebuilding.rebuild();
+
+        // Лайк уже в графе и будет прочитан, а индекс узнаёт о нём только во время перестройки
+        likeGraph.addLike(filmId, 1L);
+        duringLoad.set(() -> rebuilding.refresh(filmId));
+        rebuilding.rebuild();
+
+        assertEquals(1, rebuilding.score(filmId));
+        assertEquals(Optional.of(List.of(filmId)), rebuilding.topFilmIds(10));
+    }
+
+    private static Film film(long id, int year, long genreId) {
+        return Film.builder()
+                .id(id)
+                .name("Фильм " + id)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .mpa(new MpaRating(1L, "G"))
+                .genres(Set.of(new Genre(genreId, null)))
+                .build();
+    }
+}
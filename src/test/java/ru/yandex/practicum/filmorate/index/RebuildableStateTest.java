@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RebuildableStateTest {
+
+    @Test
+    @DisplayName("Изменения во время перестройки видны в старом состоянии и переносятся в новое")
+    void shouldReplayChangesMadeDuringRebuild() {
+        RebuildableState<AtomicLong> state = new RebuildableState<>(new AtomicLong(10));
+
+        AtomicLong rebuilt = state.rebuild(() -> {
+            AtomicLong loaded = new AtomicLong(10);
+            state.update(value -> value.set(11));
+            assertEquals(11, state.get().get(), "Во время перестройки читается прежнее состояние");
+            return loaded;
+        });
+
+        assertEquals(11, rebuilt.get(), "Изменение, не попавшее в прочитанные данные, переносится из журнала");
+        assertEquals(11, state.get().get());
+
+        state.update(value -> value.set(12));
+        assertEquals(12, state.get().get(), "После перестройки изменения больше не журналируются");
+    }
+
+    @Test
+    @DisplayName("Неудачная перестройка оставляет прежнее состояние")
+    void shouldKeepStateWhenRebuildFails() {
+        RebuildableState<AtomicLong> state = new RebuildableState<>(new AtomicLong(1));
+
+        assertThrows(IllegalStateException.class, () -> state.rebuild(() -> {
+            throw new IllegalStateException("БД недоступна");
+        }));
+        state.update(value -> value.set(2));
+
+        assertEquals(2, state.get().get());
+    }
+}
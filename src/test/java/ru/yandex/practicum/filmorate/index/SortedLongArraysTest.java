@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class SortedLongArraysTest {
+
+    @Test
+    @DisplayName("Пересечение слиянием и галопирующим поиском совпадает с наивным")
+    void shouldIntersectLikeNaiveAlgorithm() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            long[] first = randomSorted(random, random.nextInt(50), 500);
+            long[] second = randomSorted(random, random.nextInt(round % 2 == 0 ? 50 : 5_000), 10_000);
+
+            long[] expected = Arrays.stream(first).filter(value -> Arrays.binarySearch(second, value) >= 0).toArray();
+
+            assertArrayEquals(expected, SortedLongArrays.intersect(first, second));
+            assertArrayEquals(expected, SortedLongArrays.intersect(second, first));
+        }
+    }
+
+    @Test
+    @DisplayName("Вставка и удаление сохраняют порядок и не дублируют значения")
+    void shouldKeepArraySortedOnInsertAndRemove() {
+        long[] values = null;
+        for (long value : new long[]{5, 1, 3, 5, 2}) {
+            values = SortedLongArrays.insert(values, value);
+        }
+        assertArrayEquals(new long[]{1, 2, 3, 5}, values);
+
+        values = SortedLongArrays.remove(values, 3);
+        assertArrayEquals(new long[]{1, 2, 5}, values);
+        assertArrayEquals(new long[]{1, 2, 5}, SortedLongArrays.remove(values, 4));
+    }
+
+    private static long[] randomSorted(Random random, int size, int bound) {
+        return LongStream.generate(() -> random.nextInt(bound)).limit(size).distinct().sorted().toArray();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.AbstractSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import ru.yandex.practicum.filmorate.BaseIntegrationTest;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.storage.friend.JdbcFriendRepository;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.storage.like.JdbcLikeRepository;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет через EXPLAIN, что запросы репозиториев обращаются к большим таблицам по индексу.
+ * Справочники (genres, mpa_ratings) содержат единицы строк, их полное чтение допустимо.
+ */
+public class QueryPlanTest extends BaseIntegrationTest {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile(
+            "PUBLIC\\.(FILMS|USERS|LIKES|FRIENDS|FILM_GENRE)\\.tableScan", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern LIKE_COUNT_INDEX = Pattern.compile(
+            "PUBLIC\\.IDX_FILMS_LIKE_COUNT", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Запросы, которые по смыслу читают всю таблицу.
+     */
+    private static final Set<String> FULL_READ_QUERIES = Set.of(
+            "FIND_ALL_FILMS_QUERY",
+            "FIND_ALL_FILM_GENRES_QUERY",
+            "FIND_ALL_LIKES_QUERY",
+            "FIND_ALL_FRIENDSHIPS_QUERY",
+            "REPAIR_LIKE_COUNTS_QUERY");
+
+    private static final SqlParameterSource ANY_PARAMETER = new AbstractSqlParameterSource() {
+        @Override
+        public boolean hasValue(String paramName) {
+            return true;
+        }
+
+        @Override
+        public Object getValue(String paramName) {
+            return 1L;
+        }
+    };
+
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    static Stream<Arguments> repositoryQueries() {
+        return Stream.of(JdbcFilmRepository.class, JdbcFriendRepository.class, JdbcGenreRepository.class,
+                        JdbcLikeRepository.class)
+                .flatMap(type -> Arrays.stream(type.getDeclaredFields()))
+                .filter(field -> Modifier.isStatic(field.getModifiers()))
+                .filter(field -> field.getType() == String.class && field.getName().endsWith("_QUERY"))
+                .filter(field -> !FULL_READ_QUERIES.contains(field.getName()))
+                .map(field -> Arguments.of(field.getDeclaringClass().getSimpleName() + "." + field.getName(),
+                        readConstant(field)))
+                .filter(arguments -> isReadingStatement((String) arguments.get()[1]));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    @DisplayName("Запрос репозитория использует индекс, а не полный просмотр таблицы")
+    void shouldUseIndexInsteadOfTableScan(String name, String query) {
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + query, ANY_PARAMETER, String.class));
+
+        assertFalse(TABLE_SCAN.matcher(plan).find(), () -> name + " выполняет полный просмотр таблицы:\n" + plan);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"GET_POPULAR_FILM_QUERY", "GET_POPULAR_FILTERED_FILM_QUERY"})
+    @DisplayName("Запрос популярных фильмов читает фильмы по индексу like_count в порядке сортировки")
+    void shouldReadPopularFilmsByLikeCountIndex(String name) throws NoSuchFieldException {
+        String query = readConstant(JdbcFilmRepository.class.getDeclaredField(name));
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + query, ANY_PARAMETER, String.class));
+
+        assertTrue(LIKE_COUNT_INDEX.matcher(plan).find(), () -> name + " не использует IDX_FILMS_LIKE_COUNT:\n" + plan);
+    }
+
+    private static boolean isReadingStatement(String query) {
+        String statement = query.strip().toUpperCase(Locale.ROOT);
+        return statement.startsWith("SELECT") || statement.startsWith("UPDATE") || statement.startsWith("DELETE");
+    }
+
+    private static String readConstant(Field field) {
+        try {
+            field.setAccessible(true);
+            return (String) field.get(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Не удалось прочитать " + field.getName(), e);
+        }
+    }
+}
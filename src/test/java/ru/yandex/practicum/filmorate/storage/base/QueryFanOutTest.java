@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.storage.base;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.StatementCallback;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryFanOutTest {
+    private final QueryFanOut fanOut = new QueryFanOut(Executors.newVirtualThreadPerTaskExecutor(),
+            Duration.ofMillis(200));
+
+    @AfterEach
+    void tearDown() {
+        fanOut.close();
+    }
+
+    @Test
+    @DisplayName("Возвращает результаты всех запросов после ожидания")
+    void shouldJoinAllQueries() {
+        Future<Integer> first = fanOut.fork(() -> 1);
+        Future<String> second = fanOut.fork(() -> "two");
+
+        fanOut.joinAll(first, second);
+
+        assertEquals(1, first.resultNow());
+        assertEquals("two", second.resultNow());
+    }
+
+    @Test
+    @DisplayName("По таймауту отменяет незавершённые запросы, не прерывая их потоки")
+    void shouldCancelQueriesOnTimeoutWithoutInterrupt() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Future<Object> slow = fanOut.fork(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            finished.countDown();
+            return null;
+        });
+
+        assertThrows(QueryTimeoutException.class, () -> fanOut.joinAll(slow));
+        assertTrue(slow.isCancelled());
+
+        release.countDown();
+        assertTrue(finished.await(1, TimeUnit.SECONDS), "Запрос должен завершиться сам");
+        assertFalse(interrupted.get(), "Поток запроса не должен прерываться посреди JDBC-вызова");
+    }
+
+    @Test
+    @DisplayName("Пробрасывает исключение запроса и отменяет остальные")
+    void shouldPropagateQueryFailure() {
+        Future<Object> failing = fanOut.fork(() -> {
+            throw new IllegalStateException("boom");
+        });
+        Future<Object> slow = fanOut.fork(() -> {
+            Thread.sleep(10_000);
+            return null;
+        });
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> fanOut.joinAll(failing, slow));
+        assertEquals("boom", e.getMessage());
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    @DisplayName("Таймаут запроса в БД задаётся только запросам, запущенным через fork")
+    void shouldApplyQueryTimeoutOnlyToForkedQueries() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:fan-out-timeout;DB_CLOSE_DELAY=-1");
+        FanOutJdbcTemplate jdbc = new FanOutJdbcTemplate(dataSource);
+        StatementCallback<Integer> queryTimeout = Statement::getQueryTimeout;
+
+        Future<Integer> forked = fanOut.fork(() -> jdbc.execute(queryTimeout));
+        fanOut.joinAll(forked);
+
+        assertEquals(1, forked.resultNow(), "200 мс округляются вверх до секунды");
+        assertEquals(0, jdbc.execute(queryTimeout), "Запрос вне fork выполняется без таймаута");
+    }
+}
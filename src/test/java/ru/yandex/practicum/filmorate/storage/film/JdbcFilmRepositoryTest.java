@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.yandex.practicum.filmorate.BaseIntegrationTest;
+import ru.yandex.practicum.filmorate.StatementCounter;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcFilmRepositoryTest extends BaseIntegrationTest {
+    @Autowired
+    private NamedParameterJdbcOperations jdbc;
+
+    private StatementCounter counter;
+    private JdbcFilmRepository filmRepository;
+
+    @BeforeEach
+    void setUpRepository() {
+        counter = new StatementCounter(jdbc);
+        JdbcGenreRepository genreRepository = new JdbcGenreRepository(counter.jdbc(), new GenreRowMapper());
+        filmRepository = new JdbcFilmRepository(counter.jdbc(), new FilmRowMapper(), genreRepository,
+                queryFanOut);
+    }
+
+    @Test
+    @DisplayName("findAllFilms выполняет одинаковое число запросов независимо от количества фильмов")
+    void shouldLoadAllFilmsWithConstantNumberOfStatements() {
+        createFilms(2);
+        counter.reset();
+        filmRepository.findAllFilms();
+        int statementsForFewFilms = counter.statements();
+
+        createFilms(20);
+        counter.reset();
+        List<Film> films = filmRepository.findAllFilms();
+
+        assertEquals(22, films.size());
+        assertEquals(statementsForFewFilms, counter.statements(),
+                "Количество запросов не должно расти с числом фильмов");
+        films.forEach(film -> assertEquals(Set.of(1L, 2L),
+                film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()),
+                "Жанры фильма должны быть загружены"));
+    }
+
+    @Test
+    @DisplayName("getPopularFilms читает лайки только для возвращаемых фильмов")
+    void shouldReadLikesOnlyForReturnedPopularFilms() {
+        addUser();
+        createFilms(10);
+        for (long filmId = 1; filmId <= 10; filmId++) {
+            for (long userId = 1; userId <= 7; userId++) {
+                filmController.addLike(filmId, userId);
+            }
+        }
+
+        counter.reset();
+        Collection<Film> popular = filmRepository.getPopularFilms(2);
+
+        assertEquals(2, popular.size());
+        popular.forEach(film -> assertEquals(7, film.getLikes().size()));
+        assertTrue(counter.rows() <= 2 + 2 * 7 + 2 * 2,
+                "Прочитано строк: " + counter.rows() + ", ожидалось не больше 20");
+    }
+
+    private void createFilms(int count) {
+        for (int i = 0; i < count; i++) {
+            filmController.createFilm(Film.builder()
+                    .name(faker.book().title())
+                    .description("Test shouldLoadAllFilmsWithConstantNumberOfStatements")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(120)
+                    .mpa(new MpaRating(1L, "G"))
+                    .genres(Set.of(new Genre(1L, "Комедия"), new Genre(2L, "Драма")))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.config.EntityCacheConfig;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.base.QueryFanOut;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmRepository;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.storage.genre.JdbcGenreRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindLikeRepositoryTest {
+    private final QueryFanOut fanOut = new QueryFanOut(Executors.newVirtualThreadPerTaskExecutor(),
+            Duration.ofSeconds(5));
+    private final List<LikeChange> applied = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        fanOut.close();
+    }
+
+    @Test
+    @DisplayName("Схлопывает изменения в буфере и сообщает только о фактически применённых")
+    void shouldCoalesceChangesAndPublishOnlyAppliedOnes() {
+        NamedParameterJdbcOperations jdbc = database("write-behind-batch");
+        try (WriteBehindLikeRepository likes = new WriteBehindLikeRepository(new JdbcLikeRepository(jdbc),
+                this::collect, settings(100, Duration.ofMillis(10), WriteBehindLikeRepository.Durability.ASYNC))) {
+            assertFalse(likes.addLike(1L, 1L), "Лайк ещё не записан, производные структуры обновит событие");
+            likes.addLike(1L, 1L);
+            likes.addLike(1L, 2L);
+            likes.removeLike(1L, 2L);
+            likes.removeLike(1L, 3L);
+
+            assertEquals(Map.of(1L, Map.of(1L, true, 2L, false, 3L, false)), likes.snapshot());
+            assertEquals(0, countLikes(jdbc), "До записи пачки таблица likes не меняется");
+            assertTrue(applied.isEmpty());
+
+            likes.flush();
+
+            assertEquals(Map.of(), likes.snapshot());
+            assertEquals(1, countLikes(jdbc));
+            assertEquals(1, jdbc.queryForObject("SELECT like_count FROM films WHERE film_id = 1", Map.of(),
+                    Integer.class));
+            assertEquals(List.of(new LikeChange(1L, 1L, true)), applied,
+                    "Отмена отсутствующих лайков не должна доходить до индексов");
+
+            likes.addLike(1L, 1L);
+            likes.flush();
+
+            assertEquals(1, applied.size(), "Повторный лайк, уже записанный в БД, не применяется");
+        }
+    }
+
+    @Test
+    @DisplayName("Отвечает 503, если буфер шарда не освободился за время ожидания")
+    void shouldRejectLikeWhenBufferIsFull() {
+        NamedParameterJdbcOperations jdbc = database("write-behind-backpressure");
+        try (WriteBehindLikeRepository likes = new WriteBehindLikeRepository(new JdbcLikeRepository(jdbc),
+                this::collect, settings(1, Duration.ofMillis(50), WriteBehindLikeRepository.Durability.ASYNC))) {
+            likes.addLike(1L, 1L);
+            likes.addLike(1L, 1L);
+            assertThrows(ServiceUnavailableException.class, () -> likes.addLike(2L, 1L));
+        }
+    }
+
+    @Test
+    @DisplayName("В режиме SYNC по таймауту убирает изменение из буфера, и в БД оно не попадает")
+    void shouldDropChangeFromBufferWhenSyncCommitTimesOut() throws Exception {
+        NamedParameterJdbcOperations jdbc = database("write-behind-sync-timeout");
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindLikeRepository.Settings settings = new WriteBehindLikeRepository.Settings(1, 100, 100,
+                Duration.ofMinutes(1), Duration.ofMillis(50), Duration.ofMillis(200),
+                WriteBehindLikeRepository.Durability.SYNC);
+        try (WriteBehindLikeRepository likes = new WriteBehindLikeRepository(new JdbcLikeRepository(jdbc),
+                event -> {
+                    publishing.countDown();
+                    awaitQuietly(release);
+                    collect(event);
+                }, settings)) {
+            CompletableFuture<Void> first = CompletableFuture.runAsync(() -> likes.addLike(1L, 1L));
+            assertTrue(publishing.await(5, TimeUnit.SECONDS), "Первая пачка должна быть записана");
+
+            assertThrows(ServiceUnavailableException.class, () -> likes.addLike(1L, 2L));
+            assertEquals(Map.of(1L, Map.of(1L, true)), likes.forFilms(List.of(1L)),
+                    "Отменённое изменение не должно оставаться в буфере");
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            likes.flush();
+
+            assertEquals(1, countLikes(jdbc));
+            assertEquals(List.of(new LikeChange(1L, 1L, true)), applied);
+        }
+    }
+
+    @Test
+    @DisplayName("Карточка фильма сразу показывает незаписанный лайк, и кэш его не запоминает")
+    void shouldOverlayPendingLikesOnCachedFilms() {
+        NamedParameterJdbcOperations jdbc = database("write-behind-overlay");
+        try (WriteBehindLikeRepository likes = new WriteBehindLikeRepository(new JdbcLikeRepository(jdbc),
+                this::collect, settings(100, Duration.ofMillis(10), WriteBehindLikeRepository.Durability.ASYNC))) {
+            EntityCache<Long, Film> filmCache = new EntityCacheConfig().filmCache(100, 10_000);
+            CachingFilmRepository films = new CachingFilmRepository(
+                    new JdbcFilmRepository(jdbc, new FilmRowMapper(), new JdbcGenreRepository(jdbc,
+                            new GenreRowMapper()), fanOut),
+                    filmCache, likes);
+            assertEquals(Set.of(), films.getFilmById(1L).orElseThrow().getLikes(), "Фильм попадает в кэш без лайков");
+
+            likes.addLike(1L, 1L);
+            likes.addLike(2L, 2L);
+
+            assertEquals(Set.of(1L), films.getFilmById(1L).orElseThrow().getLikes(),
+                    "Незаписанный лайк накладывается на фильм из кэша");
+            assertEquals(Set.of(), filmCache.get(1L, id -> Optional.empty()).orElseThrow().getLikes(),
+                    "Незаписанный лайк не должен попадать в кэш");
+            assertEquals(List.of(Set.of(1L), Set.of(2L)),
+                    films.getFilmsByIds(List.of(1L, 2L)).stream().map(Film::getLikes).toList());
+
+            likes.removeLike(1L, 1L);
+
+            assertEquals(Set.of(), films.getFilmById(1L).orElseThrow().getLikes(),
+                    "Незаписанная отмена лайка тоже накладывается");
+            assertEquals(0, countLikes(jdbc));
+        }
+    }
+
+    private void collect(Object event) {
+        applied.addAll(((LikesAppliedEvent) event).changes());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WriteBehindLikeRepository.Settings settings(int capacity, Duration enqueueTimeout,
+                                                               WriteBehindLikeRepository.Durability durability) {
+        return new WriteBehindLikeRepository.Settings(1, capacity, 100, Duration.ofMinutes(1), enqueueTimeout,
+                Duration.ofSeconds(5), durability);
+    }
+
+    private static NamedParameterJdbcOperations database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema-h2.sql"),
+                new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        NamedParameterJdbcOperations jdbc = new NamedParameterJdbcTemplate(dataSource);
+        jdbc.getJdbcOperations().execute("""
+                INSERT INTO users (user_id, email, login) VALUES
+                    (1, 'first@example.com', 'first'),
+                    (2, 'second@example.com', 'second'),
+                    (3, 'third@example.com', 'third');
+                INSERT INTO films (film_id, name, release_date, duration, mpa_id) VALUES
+                    (1, 'Первый', DATE '2000-01-01', 90, 1),
+                    (2, 'Второй', DATE '2001-01-01', 100, 2);
+                """);
+        return jdbc;
+    }
+
+    private static int countLikes(NamedParameterJdbcOperations jdbc) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM likes", Map.of(), Integer.class);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStoreTest {
+
+    @Test
+    @DisplayName("После сбоя без снимка данные восстанавливаются проигрыванием журнала")
+    void shouldRecoverFromWriteAheadLog(@TempDir Path dir) throws IOException {
+        InMemoryStore store = open(dir);
+        User first = new InMemoryUserRepository(store).createUser(user("first"));
+        User second = new InMemoryUserRepository(store).createUser(user("second"));
+        Film film = new InMemoryFilmRepository(store).createFilm(film());
+        new InMemoryLikeRepository(store).addLike(film.getId(), first.getId());
+        new InMemoryLikeRepository(store).addLike(film.getId(), second.getId());
+        new InMemoryLikeRepository(store).removeLike(film.getId(), second.getId());
+        new InMemoryFriendRepository(store).addFriend(first.getId(), second.getId());
+
+        // store не закрывается: снимок не пишется, как при аварийном завершении процесса
+        InMemoryStore recovered = open(dir);
+
+        Film recoveredFilm = new InMemoryFilmRepository(recovered).getFilmById(film.getId()).orElseThrow();
+        assertEquals(Set.of(first.getId()), recoveredFilm.getLikes());
+        assertEquals("Драма", recoveredFilm.getGenres().iterator().next().getName());
+        assertEquals("PG", recoveredFilm.getMpa().getName());
+        assertEquals(List.of(second.getId()), friendIds(recovered, first.getId()));
+        assertEquals(3L, new InMemoryUserRepository(recovered).createUser(user("third")).getId());
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("Восстановление использует последний снимок и журнал, записанный после него")
+    void shouldRecoverFromSnapshotAndLogTail(@TempDir Path dir) throws IOException {
+        InMemoryStore store = open(dir);
+        InMemoryUserRepository users = new InMemoryUserRepository(store);
+        User first = users.createUser(user("first"));
+        User second = users.createUser(user("second"));
+        new InMemoryFriendRepository(store).addFriend(first.getId(), second.getId());
+        store.checkpoint();
+        User third = users.createUser(user("third"));
+        new InMemoryFriendRepository(store).addFriend(first.getId(), third.getId());
+        users.deleteUser(second.getId());
+
+        InMemoryStore recovered = open(dir);
+
+        assertEquals(List.of(third.getId()), friendIds(recovered, first.getId()));
+        assertFalse(new InMemoryUserRepository(recovered).existsById(second.getId()));
+        assertEquals(1, countFiles(dir, "snapshot-"));
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("Недописанная запись в конце журнала отбрасывается при восстановлении")
+    void shouldIgnoreTornRecordAtLogTail(@TempDir Path dir) throws IOException {
+        InMemoryStore store = open(dir);
+        User user = new InMemoryUserRepository(store).createUser(user("first"));
+        Files.write(lastSegment(dir), new byte[]{0, 0, 0, 42, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        InMemoryStore recovered = open(dir);
+        assertTrue(new InMemoryUserRepository(recovered).existsById(user.getId()));
+        User second = new InMemoryUserRepository(recovered).createUser(user("second"));
+
+        InMemoryStore restarted = open(dir);
+        assertTrue(new InMemoryUserRepository(restarted).existsById(second.getId()),
+                "Недописанная запись обрезается и не скрывает записи нового сегмента");
+        restarted.close();
+    }
+
+    @Test
+    @DisplayName("Проигрывание останавливается на повреждённой записи, и следующие сегменты не применяются")
+    void shouldStopReplayAtCorruptRecord(@TempDir Path dir) throws IOException {
+        InMemoryStore store = open(dir);
+        User first = new InMemoryUserRepository(store).createUser(user("first"));
+        Path firstSegment = lastSegment(dir);
+        InMemoryStore reopened = open(dir);
+        User second = new InMemoryUserRepository(reopened).createUser(user("second"));
+
+        byte[] bytes = Files.readAllBytes(firstSegment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(firstSegment, bytes);
+        InMemoryStore recovered = open(dir);
+
+        InMemoryUserRepository users = new InMemoryUserRepository(recovered);
+        assertFalse(users.existsById(first.getId()));
+        assertFalse(users.existsById(second.getId()), "Запись после повреждённой не должна применяться");
+        assertEquals(1, countFiles(dir, "wal-", ".corrupt"));
+        User third = users.createUser(user("third"));
+
+        InMemoryStore restarted = open(dir);
+        assertTrue(new InMemoryUserRepository(restarted).existsById(third.getId()),
+                "Записи после восстановления должны проигрываться при следующем старте");
+        restarted.close();
+    }
+
+    @Test
+    @DisplayName("Повторный логин отклоняется, как ограничением UNIQUE в БД")
+    void shouldRejectDuplicateLogin() {
+        InMemoryUserRepository users = new InMemoryUserRepository(new InMemoryStore("", false));
+        users.createUser(user("login"));
+
+        User duplicate = user("login");
+        duplicate.setEmail("other@mail.ru");
+        assertThrows(DuplicateKeyException.class, () -> users.createUser(duplicate));
+    }
+
+    private static InMemoryStore open(Path dir) {
+        InMemoryStore store = new InMemoryStore(dir.toString(), true);
+        store.open();
+        return store;
+    }
+
+    private static List<Long> friendIds(InMemoryStore store, Long userId) {
+        return new InMemoryFriendRepository(store).getFriends(userId).stream().map(User::getId).toList();
+    }
+
+    private static long countFiles(Path dir, String prefix) throws IOException {
+        return countFiles(dir, prefix, "");
+    }
+
+    private static long countFiles(Path dir, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .count();
+        }
+    }
+
+    private static Path lastSegment(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+    }
+
+    private static Film film() {
+        return Film.builder()
+                .name("Film")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(new MpaRating(2L, null))
+                .genres(Set.of(new Genre(2L, null)))
+                .build();
+    }
+}